@@ -0,0 +1,52 @@
+package com.github.davidmoten.rtree2;
+
+import com.github.davidmoten.rtree2.geometry.Geometry;
+import com.github.davidmoten.rtree2.geometry.Rectangle;
+import com.github.davidmoten.rtree2.geometry.internal.GeometryUtil;
+import com.github.davidmoten.rtree2.internal.Util;
+
+/**
+ * Aggregates the values of matching entries without materializing them. When
+ * the monoid equals one whose summaries are maintained on the nodes (see
+ * {@link Context#monoids()}) a node whose mbr lies wholly inside a query
+ * rectangle contributes its summary without being descended.
+ */
+final class Aggregate {
+
+    private Aggregate() {
+        // prevent instantiation
+    }
+
+    static <T, S extends Geometry, A> A aggregate(Node<T, S> node, Rectangle r,
+            Monoid<? super T, A> monoid) {
+        return aggregate(node, r, monoid, node.context().indexOf(monoid));
+    }
+
+    private static <T, S extends Geometry, A> A aggregate(Node<T, S> node, Rectangle r,
+            Monoid<? super T, A> monoid, int index) {
+        Rectangle mbr = node.geometry().mbr();
+        if (!mbr.intersects(r)) {
+            return monoid.identity();
+        } else if (index != -1 && GeometryUtil.contains(r, mbr)) {
+            return Util.summary(node, monoid, index);
+        } else if (node instanceof NonLeaf) {
+            NonLeaf<T, S> n = (NonLeaf<T, S>) node;
+            A a = monoid.identity();
+            for (int i = 0; i < n.count(); i++) {
+                a = monoid.combine(a, aggregate(n.child(i), r, monoid, index));
+            }
+            return a;
+        } else {
+            Leaf<T, S> leaf = (Leaf<T, S>) node;
+            A a = monoid.identity();
+            for (int i = 0; i < leaf.count(); i++) {
+                Entry<T, S> entry = leaf.entry(i);
+                if (entry.geometry().intersects(r)) {
+                    a = monoid.combine(a, monoid.map(entry.value()));
+                }
+            }
+            return a;
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.github.davidmoten.rtree2;
+
+import java.util.function.BiPredicate;
+
+import com.github.davidmoten.rtree2.geometry.Geometry;
+import com.github.davidmoten.rtree2.geometry.Rectangle;
+import com.github.davidmoten.rtree2.geometry.internal.GeometryUtil;
+
+/**
+ * Existence queries that return as soon as one matching entry is found,
+ * recursing without allocating. A child wholly inside a query rectangle is an
+ * immediate hit (every node holds at least one entry) and otherwise the child
+ * overlapping the query most is descended first, being the most likely to
+ * hold a match.
+ */
+final class Any {
+
+    private Any() {
+        // prevent instantiation
+    }
+
+    static <T, S extends Geometry> boolean any(Node<T, S> node, Rectangle r) {
+        Rectangle mbr = node.geometry().mbr();
+        if (!mbr.intersects(r)) {
+            return false;
+        } else if (GeometryUtil.contains(r, mbr)) {
+            return true;
+        } else if (node instanceof NonLeaf) {
+            NonLeaf<T, S> n = (NonLeaf<T, S>) node;
+            int best = -1;
+            double bestOverlap = -1;
+            for (int i = 0; i < n.count(); i++) {
+                Rectangle m = n.child(i).geometry().mbr();
+                if (m.intersects(r)) {
+                    if (GeometryUtil.contains(r, m)) {
+                        return true;
+                    }
+                    double overlap = overlap(m, r);
+                    if (overlap > bestOverlap) {
+                        best = i;
+                        bestOverlap = overlap;
+                    }
+                }
+            }
+            if (best == -1) {
+                return false;
+            } else if (any(n.child(best), r)) {
+                return true;
+            }
+            for (int i = 0; i < n.count(); i++) {
+                if (i != best && any(n.child(i), r)) {
+                    return true;
+                }
+            }
+            return false;
+        } else {
+            Leaf<T, S> leaf = (Leaf<T, S>) node;
+            for (int i = 0; i < leaf.count(); i++) {
+                if (leaf.entry(i).geometry().intersects(r)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    static <T, S extends Geometry, R extends Geometry> boolean any(Node<T, S> node, R g,
+            Rectangle r, BiPredicate<? super S, ? super R> intersects) {
+        if (!node.geometry().mbr().intersects(r)) {
+            return false;
+        } else if (node instanceof NonLeaf) {
+            NonLeaf<T, S> n = (NonLeaf<T, S>) node;
+            for (int i = 0; i < n.count(); i++) {
+                if (any(n.child(i), g, r, intersects)) {
+                    return true;
+                }
+            }
+            return false;
+        } else {
+            Leaf<T, S> leaf = (Leaf<T, S>) node;
+            for (int i = 0; i < leaf.count(); i++) {
+                S geometry = leaf.entry(i).geometry();
+                if (geometry.intersects(r) && intersects.test(geometry, g)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // area of the intersection of the x and y extents, computed without
+    // allocating a rectangle
+    private static double overlap(Rectangle a, Rectangle b) {
+        double w = Math.min(a.x2(), b.x2()) - Math.max(a.x1(), b.x1());
+        double h = Math.min(a.y2(), b.y2()) - Math.max(a.y1(), b.y1());
+        return w * h;
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.github.davidmoten.rtree2;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+import com.github.davidmoten.rtree2.geometry.Geometry;
+import com.github.davidmoten.rtree2.geometry.Rectangle;
+
+/**
+ * Answers many rectangle intersection queries with one traversal of the tree.
+ * The set of queries still active is carried down each path and narrowed at
+ * every node to those intersecting the node's mbr. Queries are sorted by
+ * ascending x1 so that narrowing can stop at the first query lying wholly to
+ * the right of a node.
+ */
+final class BatchSearch {
+
+    private BatchSearch() {
+        // prevent instantiation
+    }
+
+    static <T, S extends Geometry> void search(Node<T, S> node, int depth,
+            List<? extends Rectangle> rectangles, ObjIntConsumer<? super Entry<T, S>> consumer) {
+        int n = rectangles.size();
+        if (n == 0) {
+            return;
+        }
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> rectangles.get(i).x1()));
+        // one buffer per level of the tree holds the active query indices
+        int[][] active = new int[depth + 1][n];
+        for (int i = 0; i < n; i++) {
+            active[0][i] = order[i];
+        }
+        search(node, rectangles, active, 0, n, consumer);
+    }
+
+    private static <T, S extends Geometry> void search(Node<T, S> node,
+            List<? extends Rectangle> rectangles, int[][] active, int level, int n,
+            ObjIntConsumer<? super Entry<T, S>> consumer) {
+        Rectangle mbr = node.geometry().mbr();
+        int[] parent = active[level];
+        int[] current = active[level + 1];
+        int m = 0;
+        for (int j = 0; j < n; j++) {
+            Rectangle r = rectangles.get(parent[j]);
+            if (r.x1() > mbr.x2()) {
+                break;
+            } else if (r.intersects(mbr)) {
+                current[m++] = parent[j];
+            }
+        }
+        if (m == 0) {
+            return;
+        } else if (node instanceof NonLeaf) {
+            NonLeaf<T, S> nd = (NonLeaf<T, S>) node;
+            for (int i = 0; i < nd.count(); i++) {
+                search(nd.child(i), rectangles, active, level + 1, m, consumer);
+            }
+        } else {
+            Leaf<T, S> leaf = (Leaf<T, S>) node;
+            for (int i = 0; i < leaf.count(); i++) {
+                Entry<T, S> entry = leaf.entry(i);
+                double x2 = entry.geometry().mbr().x2();
+                for (int j = 0; j < m; j++) {
+                    Rectangle r = rectangles.get(current[j]);
+                    if (r.x1() > x2) {
+                        break;
+                    } else if (entry.geometry().intersects(r)) {
+                        consumer.accept(entry, current[j]);
+                    }
+                }
+            }
+        }
+    }
+
+}
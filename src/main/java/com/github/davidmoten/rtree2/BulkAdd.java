@@ -0,0 +1,117 @@
+package com.github.davidmoten.rtree2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.davidmoten.rtree2.geometry.Geometry;
+import com.github.davidmoten.rtree2.geometry.ListPair;
+import com.github.davidmoten.rtree2.internal.Util;
+
+/**
+ * Bulk insertion of a batch of entries into an existing tree. The batch is
+ * packed into leaves using STR and the leaves are grafted into the tree in one
+ * top-down pass: at each node the grafted leaves are partitioned among the
+ * children by the {@link Selector} so every node on the way to a modified leaf
+ * parent is copied once per batch rather than once per entry.
+ */
+final class BulkAdd {
+
+    private BulkAdd() {
+        // prevent instantiation
+    }
+
+    /**
+     * Returns the new root of the tree with the given entries added.
+     *
+     * @param root
+     *            root of the tree or null if the tree is empty
+     * @param entries
+     *            entries to add, reordered by this method
+     * @param context
+     *            tree context
+     * @return the new root
+     */
+    static <T, S extends Geometry> Node<T, S> add(Node<T, S> root, List<Entry<T, S>> entries,
+            Context<T, S> context) {
+        int capacity = RTree.Builder.defaultCapacity(context.maxChildren());
+        List<Node<T, S>> leaves = RTree.Builder.pack(entries, capacity, true, context);
+        List<Node<T, S>> nodes;
+        if (root == null) {
+            nodes = leaves;
+        } else if (root instanceof Leaf) {
+            // the existing root is just one more leaf
+            leaves.add(root);
+            nodes = leaves;
+        } else {
+            nodes = graft((NonLeaf<T, S>) root, height(root), leaves);
+        }
+        while (nodes.size() > 1) {
+            if (nodes.size() <= context.maxChildren()) {
+                return context.factory().createNonLeaf(nodes, context);
+            } else {
+                nodes = RTree.Builder.pack(nodes, capacity, false, context);
+            }
+        }
+        return nodes.get(0);
+    }
+
+    private static <T, S extends Geometry> List<Node<T, S>> graft(NonLeaf<T, S> node, int height,
+            List<Node<T, S>> leaves) {
+        List<Node<T, S>> children = node.children();
+        List<Node<T, S>> list = new ArrayList<Node<T, S>>(children.size() + leaves.size());
+        if (height == 1) {
+            list.addAll(children);
+            list.addAll(leaves);
+        } else {
+            List<List<Node<T, S>>> groups = new ArrayList<List<Node<T, S>>>(children.size());
+            for (int i = 0; i < children.size(); i++) {
+                groups.add(new ArrayList<Node<T, S>>());
+            }
+            Selector selector = node.context().selector();
+            for (Node<T, S> leaf : leaves) {
+                Node<T, S> child = selector.select(leaf.geometry().mbr(), children);
+                groups.get(Util.indexOf(children, child)).add(leaf);
+            }
+            for (int i = 0; i < children.size(); i++) {
+                if (groups.get(i).isEmpty()) {
+                    list.add(children.get(i));
+                } else {
+                    list.addAll(graft((NonLeaf<T, S>) children.get(i), height - 1, groups.get(i)));
+                }
+            }
+        }
+        List<Node<T, S>> result = new ArrayList<Node<T, S>>();
+        split(list, node.context(), result);
+        return result;
+    }
+
+    /**
+     * Makes non-leaf nodes of at most maxChildren from the given children. Small
+     * overflows are split with the {@link Splitter} as in a normal insert while
+     * large overflows are packed with STR.
+     */
+    private static <T, S extends Geometry> void split(List<Node<T, S>> children,
+            Context<T, S> context, List<Node<T, S>> result) {
+        if (children.size() <= context.maxChildren()) {
+            result.add(context.factory().createNonLeaf(children, context));
+        } else if (children.size() <= 2 * context.maxChildren()) {
+            ListPair<Node<T, S>> pair = context.splitter().split(children,
+                    context.minChildren());
+            split(pair.group1().list(), context, result);
+            split(pair.group2().list(), context, result);
+        } else {
+            result.addAll(RTree.Builder.pack(children,
+                    RTree.Builder.defaultCapacity(context.maxChildren()), false, context));
+        }
+    }
+
+    private static <T, S extends Geometry> int height(Node<T, S> node) {
+        int h = 0;
+        while (node instanceof NonLeaf) {
+            node = ((NonLeaf<T, S>) node).child(0);
+            h++;
+        }
+        return h;
+    }
+
+}
@@ -0,0 +1,178 @@
+package com.github.davidmoten.rtree2;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.davidmoten.rtree2.geometry.Geometry;
+import com.github.davidmoten.rtree2.geometry.Rectangle;
+
+/**
+ * Deletion of a batch of entries in one traversal of the tree. The entries to
+ * delete are carried down the tree, each child only receiving those that
+ * intersect its mbr, so every affected node is rebuilt once for the whole
+ * batch. Leaves that fall below minChildren are dropped and their remaining
+ * entries returned as orphans for the caller to add back in one go.
+ */
+final class BulkDelete<T, S extends Geometry> {
+
+    private final List<Entry<T, S>> orphans = new ArrayList<Entry<T, S>>();
+    private int countDeleted;
+    private Node<T, S> root;
+
+    /**
+     * Deletes the given entries from the tree with the given root.
+     *
+     * @param root
+     *            root of the tree
+     * @param entries
+     *            entries to delete
+     * @param all
+     *            if true deletes every match of each entry otherwise deletes one
+     *            match per occurrence of the entry in <code>entries</code>
+     * @return the result of the deletion
+     */
+    static <T, S extends Geometry> BulkDelete<T, S> delete(Node<T, S> root,
+            Iterable<Entry<T, S>> entries, boolean all) {
+        Map<Entry<T, S>, Doomed<T, S>> map = new HashMap<Entry<T, S>, Doomed<T, S>>();
+        List<Doomed<T, S>> list = new ArrayList<Doomed<T, S>>();
+        for (Entry<T, S> entry : entries) {
+            Doomed<T, S> d = map.get(entry);
+            if (d == null) {
+                d = new Doomed<T, S>(entry, all ? Integer.MAX_VALUE : 1);
+                map.put(entry, d);
+                list.add(d);
+            } else if (!all) {
+                d.remaining++;
+            }
+        }
+        BulkDelete<T, S> b = new BulkDelete<T, S>();
+        b.root = b.delete(root, list);
+        return b;
+    }
+
+    /**
+     * Returns the new root or null if the tree is now empty (apart from the
+     * orphans).
+     *
+     * @return new root or null
+     */
+    Node<T, S> root() {
+        return root;
+    }
+
+    /**
+     * Returns the entries of leaves that fell below minChildren which must be
+     * added back to the tree.
+     *
+     * @return orphaned entries
+     */
+    List<Entry<T, S>> orphans() {
+        return orphans;
+    }
+
+    int countDeleted() {
+        return countDeleted;
+    }
+
+    private Node<T, S> delete(Node<T, S> node, List<Doomed<T, S>> candidates) {
+        if (node instanceof Leaf) {
+            return deleteFromLeaf((Leaf<T, S>) node, candidates);
+        } else {
+            NonLeaf<T, S> n = (NonLeaf<T, S>) node;
+            List<Node<T, S>> children = null;
+            for (int i = 0; i < n.count(); i++) {
+                Node<T, S> child = n.child(i);
+                List<Doomed<T, S>> list = candidates(candidates, child);
+                Node<T, S> child2 = list.isEmpty() ? child : delete(child, list);
+                if (child2 != child && children == null) {
+                    // first change to this node so copy the unchanged children
+                    children = new ArrayList<Node<T, S>>(n.count());
+                    for (int j = 0; j < i; j++) {
+                        children.add(n.child(j));
+                    }
+                }
+                if (children != null && child2 != null) {
+                    children.add(child2);
+                }
+            }
+            if (children == null) {
+                return node;
+            } else if (children.isEmpty()) {
+                return null;
+            } else {
+                return node.context().factory().createNonLeaf(children, node.context());
+            }
+        }
+    }
+
+    private static <T, S extends Geometry> List<Doomed<T, S>> candidates(
+            List<Doomed<T, S>> candidates, Node<T, S> child) {
+        Rectangle r = child.geometry().mbr();
+        List<Doomed<T, S>> list = new ArrayList<Doomed<T, S>>();
+        for (Doomed<T, S> d : candidates) {
+            if (d.remaining > 0 && d.mbr.intersects(r)) {
+                list.add(d);
+            }
+        }
+        return list;
+    }
+
+    private Node<T, S> deleteFromLeaf(Leaf<T, S> leaf, List<Doomed<T, S>> candidates) {
+        List<Entry<T, S>> entries = null;
+        for (int i = 0; i < leaf.count(); i++) {
+            Entry<T, S> entry = leaf.entry(i);
+            Doomed<T, S> d = find(candidates, entry);
+            if (d != null) {
+                d.remaining--;
+                countDeleted++;
+                if (entries == null) {
+                    entries = new ArrayList<Entry<T, S>>(leaf.count());
+                    for (int j = 0; j < i; j++) {
+                        entries.add(leaf.entry(j));
+                    }
+                }
+            } else if (entries != null) {
+                entries.add(entry);
+            }
+        }
+        Context<T, S> context = leaf.context();
+        if (entries == null) {
+            return leaf;
+        } else if (entries.size() >= context.minChildren()) {
+            return context.factory().createLeaf(entries, context);
+        } else {
+            orphans.addAll(entries);
+            return null;
+        }
+    }
+
+    private static <T, S extends Geometry> Doomed<T, S> find(List<Doomed<T, S>> candidates,
+            Entry<T, S> entry) {
+        for (Doomed<T, S> d : candidates) {
+            if (d.remaining > 0 && d.entry.equals(entry)) {
+                return d;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * An entry to delete with the number of matches still to be deleted.
+     */
+    private static final class Doomed<T, S extends Geometry> {
+
+        final Entry<T, S> entry;
+        final Rectangle mbr;
+        int remaining;
+
+        Doomed(Entry<T, S> entry, int remaining) {
+            this.entry = entry;
+            this.mbr = entry.geometry().mbr();
+            this.remaining = remaining;
+        }
+
+    }
+
+}
@@ -0,0 +1,468 @@
+package com.github.davidmoten.rtree2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.github.davidmoten.guavamini.Lists;
+import com.github.davidmoten.guavamini.annotations.VisibleForTesting;
+import com.github.davidmoten.rtree2.geometry.Geometry;
+import com.github.davidmoten.rtree2.geometry.ListPair;
+import com.github.davidmoten.rtree2.geometry.Rectangle;
+import com.github.davidmoten.rtree2.geometry.internal.GeometryUtil;
+import com.github.davidmoten.rtree2.internal.LeafConcurrent;
+import com.github.davidmoten.rtree2.internal.NonLeafConcurrent;
+import com.github.davidmoten.rtree2.internal.Util;
+
+/**
+ * A mutable R-tree that supports concurrent adds, deletes and searches in place,
+ * created by {@link RTree.Builder#createConcurrent()} using the same
+ * {@link Selector}, {@link Splitter} and node capacity configuration as an
+ * {@link RTree}.
+ *
+ * <p>
+ * Each node has its own lock and writers lock nodes top-down (lock coupling): an
+ * add locks the root and descends the path chosen by the {@link Selector},
+ * enlarging the mbr of each node (leaf included) before releasing the lock of
+ * its parent and releasing the locks of the ancestors as soon as it reaches a
+ * node that is not full (so a split can't propagate past it). A delete finds
+ * the entry without locking then locks just the leaf and its parent, retrying
+ * if either changed in the meantime. A delete that doesn't find the entry also
+ * retries if any node it searched was replaced during the search, so it only
+ * returns false if the entry was absent at some point during the call.
+ * </p>
+ *
+ * <p>
+ * The contents of a node are replaced rather than modified so searches don't
+ * lock at all. A search returns every entry that was present for the whole of
+ * the search and may or may not return entries added or deleted during it.
+ * </p>
+ *
+ * <p>
+ * Deleting doesn't reinsert the entries of underfull leaves (that would hide
+ * them from concurrent searches) so a leaf is only removed once it is empty. A
+ * delete shrinks the mbr of the leaf and its parent while holding their locks
+ * then shrinks the mbrs of the further ancestors one lock at a time until one
+ * doesn't change, so the mbrs don't keep growing as entries move.
+ * </p>
+ *
+ * @param <T>
+ *            the entry value type
+ * @param <S>
+ *            the entry geometry type
+ */
+public final class ConcurrentRTree<T, S extends Geometry> {
+
+    private final Context<T, S> context;
+
+    // must be held to replace the root
+    private final ReentrantLock rootLock = new ReentrantLock();
+
+    private volatile Node<T, S> root;
+
+    private final LongAdder size = new LongAdder();
+
+    ConcurrentRTree(Context<T, S> context) {
+        this.context = context;
+    }
+
+    /**
+     * Adds the entry to the tree.
+     *
+     * @param entry
+     *            item to add to the R-tree
+     */
+    @SuppressWarnings("unchecked")
+    public void add(Entry<? extends T, ? extends S> entry) {
+        Entry<T, S> e = (Entry<T, S>) entry;
+        Rectangle r = e.geometry().mbr();
+        // the locked nodes that may have to change, from the top down
+        List<Node<T, S>> held = new ArrayList<Node<T, S>>();
+        rootLock.lock();
+        boolean rootLocked = true;
+        try {
+            Node<T, S> node = root;
+            if (node == null) {
+                root = new LeafConcurrent<T, S>(Lists.newArrayList(e), context);
+                size.increment();
+                return;
+            }
+            lock(node).lock();
+            held.add(node);
+            enlarge(node, r);
+            if (isSafe(node)) {
+                rootLock.unlock();
+                rootLocked = false;
+            }
+            while (node instanceof NonLeaf) {
+                Node<T, S> child = context.selector().select(r, ((NonLeaf<T, S>) node).children());
+                lock(child).lock();
+                // the mbr of a node is only changed while its parent is locked
+                // so that a split of the parent always sees the enlarged mbr
+                enlarge(child, r);
+                if (isSafe(child)) {
+                    // a split of child won't need any of the ancestors
+                    unlock(held);
+                    if (rootLocked) {
+                        rootLock.unlock();
+                        rootLocked = false;
+                    }
+                }
+                held.add(child);
+                node = child;
+            }
+            LeafConcurrent<T, S> leaf = (LeafConcurrent<T, S>) node;
+            List<Entry<T, S>> entries = new ArrayList<Entry<T, S>>(leaf.count() + 1);
+            entries.addAll(leaf.entries());
+            entries.add(e);
+            if (entries.size() <= context.maxChildren()) {
+                leaf.update(entries);
+            } else {
+                ListPair<Entry<T, S>> pair = context.splitter().split(entries,
+                        context.minChildren());
+                split(held, Lists.<Node<T, S>>newArrayList(
+                        new LeafConcurrent<T, S>(pair.group1().list(), context),
+                        new LeafConcurrent<T, S>(pair.group2().list(), context)));
+            }
+            size.increment();
+        } finally {
+            unlock(held);
+            if (rootLocked) {
+                rootLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Adds an entry comprised of the given value and Geometry to the tree.
+     *
+     * @param value
+     *            value of the {@link Entry} to be added
+     * @param geometry
+     *            geometry of the {@link Entry} to be added
+     */
+    public void add(T value, S geometry) {
+        add(context.factory().createEntry(value, geometry));
+    }
+
+    /**
+     * Replaces the last held node with <code>replacements</code> in its parent,
+     * splitting the held ancestors as required.
+     */
+    private void split(List<Node<T, S>> held, List<Node<T, S>> replacements) {
+        int i = held.size() - 1;
+        while (true) {
+            Node<T, S> old = held.get(i);
+            if (i == 0) {
+                // only the root can overflow without a held parent
+                root = new NonLeafConcurrent<T, S>(replacements, context);
+                markObsolete(old);
+                return;
+            }
+            NonLeafConcurrent<T, S> parent = (NonLeafConcurrent<T, S>) held.get(i - 1);
+            List<Node<T, S>> children = new ArrayList<Node<T, S>>(parent.count() + 1);
+            for (Node<T, S> child : parent.children()) {
+                if (child == old) {
+                    children.addAll(replacements);
+                } else {
+                    children.add(child);
+                }
+            }
+            if (children.size() <= context.maxChildren()) {
+                parent.update(children);
+                markObsolete(old);
+                return;
+            } else {
+                ListPair<Node<T, S>> pair = context.splitter().split(children,
+                        context.minChildren());
+                replacements = Lists.<Node<T, S>>newArrayList(
+                        new NonLeafConcurrent<T, S>(pair.group1().list(), context),
+                        new NonLeafConcurrent<T, S>(pair.group2().list(), context));
+                markObsolete(old);
+                i--;
+            }
+        }
+    }
+
+    /**
+     * Deletes one entry matching the given entry if it exists. The entry must
+     * match on both value and geometry to be deleted.
+     *
+     * @param entry
+     *            the {@link Entry} to be deleted
+     * @return true if an entry was deleted
+     */
+    public boolean delete(Entry<? extends T, ? extends S> entry) {
+        Rectangle r = entry.geometry().mbr();
+        while (true) {
+            Node<T, S> node = root;
+            if (node == null) {
+                return false;
+            }
+            List<Node<T, S>> path = new ArrayList<Node<T, S>>();
+            int found = find(node, entry, r, path);
+            if (found == ABSENT && root == node) {
+                return false;
+            } else if (found == FOUND) {
+                if (delete(path, entry)) {
+                    return true;
+                }
+            }
+            // a node the search went through changed so try again
+        }
+    }
+
+    /**
+     * Deletes one entry matching the given value and geometry if it exists.
+     *
+     * @param value
+     *            the value to be matched for deletion
+     * @param geometry
+     *            the geometry to be matched for deletion
+     * @return true if an entry was deleted
+     */
+    public boolean delete(T value, S geometry) {
+        return delete(context.factory().createEntry(value, geometry));
+    }
+
+    /**
+     * Deletes the entry from the leaf at the end of path under the locks of the
+     * leaf and its parent, returning false if either changed since the entry was
+     * found. If the mbr of the parent shrinks as a result the ancestors are then
+     * shrunk from the bottom up while their mbrs change.
+     */
+    private boolean delete(List<Node<T, S>> path, Entry<? extends T, ? extends S> entry) {
+        LeafConcurrent<T, S> leaf = (LeafConcurrent<T, S>) path.get(path.size() - 1);
+        NonLeafConcurrent<T, S> parent = path.size() == 1 ? null
+                : (NonLeafConcurrent<T, S>) path.get(path.size() - 2);
+        boolean shrunk;
+        if (parent != null) {
+            parent.lock().lock();
+        }
+        try {
+            if (parent != null
+                    && (parent.isObsolete() || Util.indexOf(parent.children(), leaf) < 0)) {
+                return false;
+            }
+            leaf.lock().lock();
+            try {
+                if (leaf.isObsolete() || parent == null && root != leaf) {
+                    return false;
+                }
+                List<Entry<T, S>> entries = new ArrayList<Entry<T, S>>(leaf.entries());
+                if (!entries.remove(entry)) {
+                    return false;
+                }
+                if (entries.isEmpty() && parent != null && parent.count() > 1) {
+                    List<Node<T, S>> children = new ArrayList<Node<T, S>>(parent.children());
+                    children.remove(Util.indexOf(children, leaf));
+                    parent.update(children);
+                    leaf.markObsolete();
+                } else {
+                    leaf.delete(entries);
+                }
+                shrunk = parent != null && parent.shrink();
+                size.decrement();
+            } finally {
+                leaf.lock().unlock();
+            }
+        } finally {
+            if (parent != null) {
+                parent.lock().unlock();
+            }
+        }
+        if (shrunk) {
+            // locks are taken top-down so the ancestors are locked one at a time
+            for (int i = path.size() - 3; i >= 0; i--) {
+                NonLeafConcurrent<T, S> node = (NonLeafConcurrent<T, S>) path.get(i);
+                node.lock().lock();
+                try {
+                    if (node.isObsolete() || !node.shrink()) {
+                        break;
+                    }
+                } finally {
+                    node.lock().unlock();
+                }
+            }
+        }
+        return true;
+    }
+
+    // results of find
+    private static final int FOUND = 0;
+    private static final int ABSENT = 1;
+    private static final int CHANGED = 2;
+
+    /**
+     * Searches below node for the entry without locking. Returns FOUND with the
+     * nodes from node down to the leaf containing the entry in path, ABSENT if
+     * the entry is not there or CHANGED if it wasn't found but one of the nodes
+     * searched was replaced during the search (so the entry may have been moved
+     * out of reach of the search).
+     */
+    private static <T, S extends Geometry> int find(Node<T, S> node,
+            Entry<? extends T, ? extends S> entry, Rectangle r, List<Node<T, S>> path) {
+        path.add(node);
+        int result = ABSENT;
+        if (node instanceof Leaf) {
+            if (((Leaf<T, S>) node).entries().contains(entry)) {
+                return FOUND;
+            }
+        } else {
+            for (Node<T, S> child : ((NonLeaf<T, S>) node).children()) {
+                if (child.geometry().mbr().intersects(r)) {
+                    int found = find(child, entry, r, path);
+                    if (found == FOUND) {
+                        return FOUND;
+                    } else if (found == CHANGED) {
+                        result = CHANGED;
+                    }
+                }
+            }
+        }
+        path.remove(path.size() - 1);
+        // checked after reading the contents of the node
+        if (isObsolete(node)) {
+            return CHANGED;
+        } else {
+            return result;
+        }
+    }
+
+    /**
+     * Returns the entries whose geometries intersect the given rectangle. Searches
+     * don't block and are not blocked by adds and deletes.
+     *
+     * @param r
+     *            rectangle to intersect with
+     * @return entries intersecting the rectangle
+     */
+    public Iterable<Entry<T, S>> search(Rectangle r) {
+        List<Entry<T, S>> list = new ArrayList<Entry<T, S>>();
+        Node<T, S> node = root;
+        if (node != null) {
+            search(node, r, list);
+        }
+        return list;
+    }
+
+    private static <T, S extends Geometry> void search(Node<T, S> node, Rectangle r,
+            List<Entry<T, S>> list) {
+        if (node instanceof Leaf) {
+            for (Entry<T, S> entry : ((Leaf<T, S>) node).entries()) {
+                if (entry.geometry().intersects(r)) {
+                    list.add(entry);
+                }
+            }
+        } else {
+            for (Node<T, S> child : ((NonLeaf<T, S>) node).children()) {
+                if (child.geometry().mbr().intersects(r)) {
+                    search(child, r, list);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns all entries in the tree.
+     *
+     * @return all entries
+     */
+    public Iterable<Entry<T, S>> entries() {
+        List<Entry<T, S>> list = new ArrayList<Entry<T, S>>();
+        Node<T, S> node = root;
+        if (node != null) {
+            entries(node, list);
+        }
+        return list;
+    }
+
+    private static <T, S extends Geometry> void entries(Node<T, S> node,
+            List<Entry<T, S>> list) {
+        if (node instanceof Leaf) {
+            list.addAll(((Leaf<T, S>) node).entries());
+        } else {
+            for (Node<T, S> child : ((NonLeaf<T, S>) node).children()) {
+                entries(child, list);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of entries in the tree. The result is exact only when no
+     * adds or deletes are in progress.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return size.intValue();
+    }
+
+    /**
+     * Returns true if the tree has no entries.
+     *
+     * @return true if there are no entries
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the options of this tree.
+     *
+     * @return the context
+     */
+    public Context<T, S> context() {
+        return context;
+    }
+
+    @VisibleForTesting
+    Node<T, S> root() {
+        return root;
+    }
+
+    private boolean isSafe(Node<T, S> node) {
+        return node.count() < context.maxChildren();
+    }
+
+    private static <T, S extends Geometry> ReentrantLock lock(Node<T, S> node) {
+        if (node instanceof LeafConcurrent) {
+            return ((LeafConcurrent<T, S>) node).lock();
+        } else {
+            return ((NonLeafConcurrent<T, S>) node).lock();
+        }
+    }
+
+    private static <T, S extends Geometry> void enlarge(Node<T, S> node, Rectangle r) {
+        if (node instanceof LeafConcurrent) {
+            ((LeafConcurrent<T, S>) node).enlarge(r);
+        } else {
+            ((NonLeafConcurrent<T, S>) node).enlarge(r);
+        }
+    }
+
+    private static <T, S extends Geometry> void unlock(List<Node<T, S>> held) {
+        for (Node<T, S> node : held) {
+            lock(node).unlock();
+        }
+        held.clear();
+    }
+
+    private static <T, S extends Geometry> boolean isObsolete(Node<T, S> node) {
+        if (node instanceof LeafConcurrent) {
+            return ((LeafConcurrent<T, S>) node).isObsolete();
+        } else {
+            return ((NonLeafConcurrent<T, S>) node).isObsolete();
+        }
+    }
+
+    private static <T, S extends Geometry> void markObsolete(Node<T, S> node) {
+        if (node instanceof LeafConcurrent) {
+            ((LeafConcurrent<T, S>) node).markObsolete();
+        } else {
+            ((NonLeafConcurrent<T, S>) node).markObsolete();
+        }
+    }
+
+}
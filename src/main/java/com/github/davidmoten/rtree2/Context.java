@@ -1,5 +1,9 @@
 package com.github.davidmoten.rtree2;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import com.github.davidmoten.guavamini.Preconditions;
 import com.github.davidmoten.rtree2.geometry.Geometry;
 
@@ -15,6 +19,7 @@ public final class Context<T, S extends Geometry> {
     private final Splitter splitter;
     private final Selector selector;
     private final Factory<T, S> factory;
+    private final List<Monoid<? super T, ?>> monoids;
 
     /**
      * Constructor.
@@ -32,17 +37,42 @@ public final class Context<T, S extends Geometry> {
      */
     public Context(int minChildren, int maxChildren, Selector selector, Splitter splitter,
             Factory<T, S> factory) {
+        this(minChildren, maxChildren, selector, splitter, factory,
+                Collections.<Monoid<? super T, ?>> emptyList());
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param minChildren
+     *            minimum number of children per node (at least 1)
+     * @param maxChildren
+     *            max number of children per node (minimum is 3)
+     * @param selector
+     *            algorithm to select search path
+     * @param splitter
+     *            algorithm to split the children across two new nodes
+     * @param factory
+     *            node creation factory
+     * @param monoids
+     *            each summarizes the entry values of every node
+     */
+    public Context(int minChildren, int maxChildren, Selector selector, Splitter splitter,
+            Factory<T, S> factory, List<? extends Monoid<? super T, ?>> monoids) {
         Preconditions.checkNotNull(splitter);
         Preconditions.checkNotNull(selector);
         Preconditions.checkArgument(maxChildren > 2);
         Preconditions.checkArgument(minChildren >= 1);
         Preconditions.checkArgument(minChildren < maxChildren);
         Preconditions.checkNotNull(factory);
+        Preconditions.checkNotNull(monoids);
         this.selector = selector;
         this.maxChildren = maxChildren;
         this.minChildren = minChildren;
         this.splitter = splitter;
         this.factory = factory;
+        this.monoids = Collections
+                .unmodifiableList(new ArrayList<Monoid<? super T, ?>>(monoids));
     }
 
     public int maxChildren() {
@@ -65,4 +95,26 @@ public final class Context<T, S extends Geometry> {
         return factory;
     }
 
+    /**
+     * Returns the monoids under which every node maintains the summary of the
+     * values of the entries below it (empty if none were configured).
+     * 
+     * @return the monoids of the node summaries
+     */
+    public List<Monoid<? super T, ?>> monoids() {
+        return monoids;
+    }
+
+    /**
+     * Returns the position in {@link #monoids()} of the monoid equal to the given
+     * one, or -1 if no summaries are maintained under it.
+     * 
+     * @param monoid
+     *            monoid to look up
+     * @return index of the monoid or -1
+     */
+    public int indexOf(Monoid<?, ?> monoid) {
+        return monoids.indexOf(monoid);
+    }
+
 }
@@ -0,0 +1,70 @@
+package com.github.davidmoten.rtree2;
+
+import java.util.function.BiPredicate;
+
+import com.github.davidmoten.rtree2.geometry.Geometry;
+import com.github.davidmoten.rtree2.geometry.Rectangle;
+import com.github.davidmoten.rtree2.geometry.internal.GeometryUtil;
+
+/**
+ * Counts matching entries without materializing them. A node whose mbr lies
+ * wholly inside a query rectangle contributes its cached {@link Node#size()}
+ * without being descended.
+ */
+final class Count {
+
+    private Count() {
+        // prevent instantiation
+    }
+
+    static <T, S extends Geometry> int count(Node<T, S> node, Rectangle r) {
+        Rectangle mbr = node.geometry().mbr();
+        if (!mbr.intersects(r)) {
+            return 0;
+        } else if (GeometryUtil.contains(r, mbr)) {
+            return node.size();
+        } else if (node instanceof NonLeaf) {
+            NonLeaf<T, S> n = (NonLeaf<T, S>) node;
+            int count = 0;
+            for (int i = 0; i < n.count(); i++) {
+                count += count(n.child(i), r);
+            }
+            return count;
+        } else {
+            Leaf<T, S> leaf = (Leaf<T, S>) node;
+            int count = 0;
+            for (int i = 0; i < leaf.count(); i++) {
+                if (leaf.entry(i).geometry().intersects(r)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    static <T, S extends Geometry, R extends Geometry> int count(Node<T, S> node, R g,
+            BiPredicate<? super S, ? super R> intersects) {
+        Rectangle r = g.mbr();
+        if (!node.geometry().mbr().intersects(r)) {
+            return 0;
+        } else if (node instanceof NonLeaf) {
+            NonLeaf<T, S> n = (NonLeaf<T, S>) node;
+            int count = 0;
+            for (int i = 0; i < n.count(); i++) {
+                count += count(n.child(i), g, intersects);
+            }
+            return count;
+        } else {
+            Leaf<T, S> leaf = (Leaf<T, S>) node;
+            int count = 0;
+            for (int i = 0; i < leaf.count(); i++) {
+                S geometry = leaf.entry(i).geometry();
+                if (geometry.intersects(r) && intersects.test(geometry, g)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.github.davidmoten.rtree2;
+
+import com.github.davidmoten.guavamini.Preconditions;
+import com.github.davidmoten.rtree2.geometry.Geometry;
+import com.github.davidmoten.rtree2.geometry.Rectangle;
+
+/**
+ * Counts entries per cell of a grid over a view rectangle in one traversal.
+ * Each entry is binned by the centre of its mbr so a node whose mbr lies wholly
+ * inside one cell contributes its cached {@link Node#size()} to that cell
+ * without being descended. Only nodes straddling cell boundaries are descended.
+ */
+final class Histogram {
+
+    private final Rectangle view;
+    private final int cols;
+    private final int rows;
+    private final double cellWidth;
+    private final double cellHeight;
+    private final int[] counts;
+
+    private Histogram(Rectangle view, int cols, int rows) {
+        Preconditions.checkArgument(cols > 0, "cols must be > 0");
+        Preconditions.checkArgument(rows > 0, "rows must be > 0");
+        this.view = view;
+        this.cols = cols;
+        this.rows = rows;
+        this.cellWidth = (view.x2() - view.x1()) / cols;
+        this.cellHeight = (view.y2() - view.y1()) / rows;
+        this.counts = new int[cols * rows];
+    }
+
+    static <T, S extends Geometry> int[] histogram(Node<T, S> node, Rectangle view, int cols,
+            int rows) {
+        Histogram h = new Histogram(view, cols, rows);
+        h.add(node);
+        return h.counts;
+    }
+
+    private <T, S extends Geometry> void add(Node<T, S> node) {
+        Rectangle mbr = node.geometry().mbr();
+        if (!mbr.intersects(view)) {
+            return;
+        }
+        int cell = cell(mbr.x1(), mbr.y1());
+        if (cell >= 0 && cell == cell(mbr.x2(), mbr.y2())) {
+            counts[cell] += node.size();
+        } else if (node instanceof NonLeaf) {
+            NonLeaf<T, S> n = (NonLeaf<T, S>) node;
+            for (int i = 0; i < n.count(); i++) {
+                add(n.child(i));
+            }
+        } else {
+            Leaf<T, S> leaf = (Leaf<T, S>) node;
+            for (int i = 0; i < leaf.count(); i++) {
+                Rectangle r = leaf.entry(i).geometry().mbr();
+                int c = cell((r.x1() + r.x2()) / 2, (r.y1() + r.y2()) / 2);
+                if (c >= 0) {
+                    counts[c]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the cell containing (x, y) or -1 if outside the view.
+     * The upper boundaries of the view belong to the last column and row.
+     */
+    private int cell(double x, double y) {
+        if (!view.contains(x, y)) {
+            return -1;
+        }
+        int col = cellWidth == 0 ? 0 : Math.min(cols - 1, (int) ((x - view.x1()) / cellWidth));
+        int row = cellHeight == 0 ? 0 : Math.min(rows - 1, (int) ((y - view.y1()) / cellHeight));
+        return row * cols + col;
+    }
+
+}
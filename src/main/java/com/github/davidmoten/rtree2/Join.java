@@ -0,0 +1,197 @@
+package com.github.davidmoten.rtree2;
+
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+
+import com.github.davidmoten.rtree2.geometry.Circle;
+import com.github.davidmoten.rtree2.geometry.Geometries;
+import com.github.davidmoten.rtree2.geometry.Geometry;
+import com.github.davidmoten.rtree2.geometry.Line;
+import com.github.davidmoten.rtree2.geometry.Polygon;
+import com.github.davidmoten.rtree2.geometry.Rectangle;
+import com.github.davidmoten.rtree2.geometry.internal.GeometryUtil;
+
+/**
+ * Spatial joins between two R-trees (or an R-tree and itself) by synchronized
+ * depth-first traversal. Only pairs of nodes whose mbrs are <i>near</i> each
+ * other (intersecting for an intersection join, within a distance for a
+ * distance join) are descended so the upper levels of each tree are visited
+ * once rather than once per entry of the other tree.
+ */
+final class Join {
+
+    private Join() {
+        // prevent instantiation
+    }
+
+    static final BiPredicate<Rectangle, Rectangle> INTERSECTS = (a, b) -> a.intersects(b);
+
+    static BiPredicate<Rectangle, Rectangle> withinDistance(double maxDistance) {
+        return (a, b) -> a.distance(b) < maxDistance;
+    }
+
+    /**
+     * Returns the distance between two geometries. The distance is exact (and
+     * symmetric) for any combination of points, rectangles, circles, lines and
+     * polygons. For other geometries it is the larger of the distances from each
+     * geometry to the mbr of the other, a symmetric lower bound of the exact
+     * distance.
+     *
+     * @param a
+     *            first geometry
+     * @param b
+     *            second geometry
+     * @return the distance between a and b
+     */
+    static double distance(Geometry a, Geometry b) {
+        if (a instanceof Rectangle && a.mbr().dimensions() == 2) {
+            return distance(b, (Rectangle) a);
+        } else if (b instanceof Rectangle && b.mbr().dimensions() == 2) {
+            return distance(a, (Rectangle) b);
+        } else if (a instanceof Circle) {
+            return distance(b, (Circle) a);
+        } else if (b instanceof Circle) {
+            return distance(a, (Circle) b);
+        } else if (a instanceof Line && b instanceof Line) {
+            return distance((Line) a, (Line) b);
+        } else if (a instanceof Polygon && b instanceof Line) {
+            return ((Polygon) a).distance((Line) b);
+        } else if (a instanceof Line && b instanceof Polygon) {
+            return ((Polygon) b).distance((Line) a);
+        } else if (a instanceof Polygon && b instanceof Polygon) {
+            return ((Polygon) a).distance((Polygon) b);
+        } else {
+            return Math.max(a.distance(b.mbr()), b.distance(a.mbr()));
+        }
+    }
+
+    private static double distance(Geometry g, Rectangle r) {
+        // Geometry.distance(Rectangle) is only required to be exact when the
+        // geometry is disjoint from the rectangle
+        return g.intersects(r) ? 0 : g.distance(r);
+    }
+
+    private static double distance(Geometry g, Circle c) {
+        return Math.max(0, distance(g, Geometries.point(c.x(), c.y())) - c.radius());
+    }
+
+    private static double distance(Line a, Line b) {
+        return GeometryUtil.segmentDistance(a.x1(), a.y1(), a.x2(), a.y2(), b.x1(), b.y1(),
+                b.x2(), b.y2());
+    }
+
+    /**
+     * Reports every pair of entries (one from each tree) whose mbrs are near each
+     * other and which satisfy <code>condition</code>.
+     *
+     * @param a
+     *            root of the first tree
+     * @param b
+     *            root of the second tree
+     * @param near
+     *            must hold for two mbrs if it holds for any pair of rectangles
+     *            that they contain
+     * @param condition
+     *            refines pairs of entries with near mbrs
+     * @param consumer
+     *            receives the matching pairs
+     */
+    static <T, S extends Geometry, U, V extends Geometry> void join(Node<T, S> a, Node<U, V> b,
+            BiPredicate<Rectangle, Rectangle> near,
+            BiPredicate<? super Entry<T, S>, ? super Entry<U, V>> condition,
+            BiConsumer<? super Entry<T, S>, ? super Entry<U, V>> consumer) {
+        Rectangle rb = b.geometry().mbr();
+        if (!near.test(a.geometry().mbr(), rb)) {
+            return;
+        }
+        if (a instanceof Leaf && b instanceof Leaf) {
+            joinLeaves((Leaf<T, S>) a, (Leaf<U, V>) b, near, condition, consumer);
+        } else if (b instanceof Leaf) {
+            NonLeaf<T, S> na = (NonLeaf<T, S>) a;
+            for (int i = 0; i < na.count(); i++) {
+                join(na.child(i), b, near, condition, consumer);
+            }
+        } else if (a instanceof Leaf) {
+            NonLeaf<U, V> nb = (NonLeaf<U, V>) b;
+            for (int j = 0; j < nb.count(); j++) {
+                join(a, nb.child(j), near, condition, consumer);
+            }
+        } else {
+            NonLeaf<T, S> na = (NonLeaf<T, S>) a;
+            NonLeaf<U, V> nb = (NonLeaf<U, V>) b;
+            for (int i = 0; i < na.count(); i++) {
+                Node<T, S> ca = na.child(i);
+                // children of a not near b's mbr can't match anything below b
+                if (near.test(ca.geometry().mbr(), rb)) {
+                    for (int j = 0; j < nb.count(); j++) {
+                        join(ca, nb.child(j), near, condition, consumer);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reports every unordered pair of distinct entries in the tree whose mbrs are
+     * near each other and which satisfy <code>condition</code> exactly once.
+     *
+     * @param node
+     *            root of the tree
+     * @param near
+     *            must hold for two mbrs if it holds for any pair of rectangles
+     *            that they contain
+     * @param condition
+     *            refines pairs of entries with near mbrs
+     * @param consumer
+     *            receives the matching pairs
+     */
+    static <T, S extends Geometry> void selfJoin(Node<T, S> node,
+            BiPredicate<Rectangle, Rectangle> near,
+            BiPredicate<? super Entry<T, S>, ? super Entry<T, S>> condition,
+            BiConsumer<? super Entry<T, S>, ? super Entry<T, S>> consumer) {
+        if (node instanceof Leaf) {
+            Leaf<T, S> leaf = (Leaf<T, S>) node;
+            for (int i = 0; i < leaf.count(); i++) {
+                Entry<T, S> ea = leaf.entry(i);
+                Rectangle r = ea.geometry().mbr();
+                for (int j = i + 1; j < leaf.count(); j++) {
+                    Entry<T, S> eb = leaf.entry(j);
+                    if (near.test(r, eb.geometry().mbr()) && condition.test(ea, eb)) {
+                        consumer.accept(ea, eb);
+                    }
+                }
+            }
+        } else {
+            NonLeaf<T, S> n = (NonLeaf<T, S>) node;
+            for (int i = 0; i < n.count(); i++) {
+                Node<T, S> child = n.child(i);
+                selfJoin(child, near, condition, consumer);
+                // pairs across different children are reported from the lower
+                // indexed child only
+                for (int j = i + 1; j < n.count(); j++) {
+                    join(child, n.child(j), near, condition, consumer);
+                }
+            }
+        }
+    }
+
+    private static <T, S extends Geometry, U, V extends Geometry> void joinLeaves(Leaf<T, S> a,
+            Leaf<U, V> b, BiPredicate<Rectangle, Rectangle> near,
+            BiPredicate<? super Entry<T, S>, ? super Entry<U, V>> condition,
+            BiConsumer<? super Entry<T, S>, ? super Entry<U, V>> consumer) {
+        Rectangle rb = b.geometry().mbr();
+        for (int i = 0; i < a.count(); i++) {
+            Entry<T, S> ea = a.entry(i);
+            Rectangle r = ea.geometry().mbr();
+            if (near.test(r, rb)) {
+                for (int j = 0; j < b.count(); j++) {
+                    Entry<U, V> eb = b.entry(j);
+                    if (near.test(r, eb.geometry().mbr()) && condition.test(ea, eb)) {
+                        consumer.accept(ea, eb);
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -19,4 +19,9 @@ public interface Leaf<T, S extends Geometry> extends Node<T, S> {
      */
     Entry<T, S> entry(int i);
 
-}
\ No newline at end of file
+    @Override
+    default int size() {
+        return count();
+    }
+
+}
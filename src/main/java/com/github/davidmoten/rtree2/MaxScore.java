@@ -0,0 +1,47 @@
+package com.github.davidmoten.rtree2;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Summarizes a group of values by their maximum score (see
+ * {@link Monoid#max(ToDoubleFunction)}). Two instances are equal when their score
+ * functions are equal so that the monoid can be looked up by its score function
+ * amongst the monoids of a {@link Context}.
+ *
+ * @param <T>
+ *            value type
+ */
+final class MaxScore<T> implements Monoid<T, Double> {
+
+    private final ToDoubleFunction<? super T> score;
+
+    MaxScore(ToDoubleFunction<? super T> score) {
+        this.score = score;
+    }
+
+    @Override
+    public Double identity() {
+        return Double.NEGATIVE_INFINITY;
+    }
+
+    @Override
+    public Double map(T value) {
+        return score.applyAsDouble(value);
+    }
+
+    @Override
+    public Double combine(Double a, Double b) {
+        return Math.max(a, b);
+    }
+
+    @Override
+    public int hashCode() {
+        return score.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof MaxScore && score.equals(((MaxScore<?>) obj).score);
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.github.davidmoten.rtree2;
+
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+import com.github.davidmoten.guavamini.Preconditions;
+
+/**
+ * Summarizes the values of a group of entries (for example the sum of weights or
+ * the maximum timestamp) so that summaries of subtrees can be combined without
+ * visiting their entries. <code>combine</code> must be associative and
+ * <code>identity</code> must be its identity element.
+ *
+ * @param <T>
+ *            value type
+ * @param <A>
+ *            summary type
+ */
+public interface Monoid<T, A> {
+
+    /**
+     * Returns the summary of no entries.
+     * 
+     * @return the identity element
+     */
+    A identity();
+
+    /**
+     * Returns the summary of a single entry with the given value.
+     * 
+     * @param value
+     *            entry value
+     * @return summary of the value
+     */
+    A map(T value);
+
+    /**
+     * Combines two summaries.
+     * 
+     * @param a
+     *            first summary
+     * @param b
+     *            second summary
+     * @return the combined summary
+     */
+    A combine(A a, A b);
+
+    /**
+     * Returns a monoid that summarizes a group of values by their maximum score
+     * (negative infinity for no values). Monoids returned for the same score
+     * function are equal, so configuring <code>max(score)</code> with
+     * {@link RTree.Builder#summary(Monoid...)} lets
+     * {@link RTree#topK(com.github.davidmoten.rtree2.geometry.Rectangle, ToDoubleFunction, int)}
+     * use the maintained summaries when passed the same <code>score</code>.
+     * 
+     * @param <T>
+     *            value type
+     * @param score
+     *            score of a value
+     * @return monoid of the maximum score
+     */
+    static <T> Monoid<T, Double> max(ToDoubleFunction<? super T> score) {
+        Preconditions.checkNotNull(score);
+        return new MaxScore<T>(score);
+    }
+
+    static <T, A> Monoid<T, A> create(A identity, Function<? super T, ? extends A> map,
+            BinaryOperator<A> combine) {
+        Preconditions.checkNotNull(map);
+        Preconditions.checkNotNull(combine);
+        return new Monoid<T, A>() {
+
+            @Override
+            public A identity() {
+                return identity;
+            }
+
+            @Override
+            public A map(T value) {
+                return map.apply(value);
+            }
+
+            @Override
+            public A combine(A a, A b) {
+                return combine.apply(a, b);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,156 @@
+package com.github.davidmoten.rtree2;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import com.github.davidmoten.guavamini.Preconditions;
+import com.github.davidmoten.rtree2.geometry.Geometry;
+import com.github.davidmoten.rtree2.geometry.Rectangle;
+
+/**
+ * Best-first (incremental) nearest neighbour search as described by Hjaltason
+ * and Samet in <i>Distance Browsing in Spatial Databases</i>. Nodes and entries
+ * share a single priority queue ordered by distance to the query rectangle so
+ * that a node is only expanded when it is closer than every result not yet
+ * returned.
+ */
+final class Nearest {
+
+    private Nearest() {
+        // prevent instantiation
+    }
+
+    static <T, S extends Geometry> List<Entry<T, S>> nearest(Node<T, S> node, Rectangle r,
+            double maxDistance, int maxCount) {
+        Preconditions.checkArgument(maxCount > 0, "maxCount must be > 0");
+        List<Entry<T, S>> list = new ArrayList<Entry<T, S>>();
+        Iterator<Entry<T, S>> it = new NearestIterator<T, S>(node, r, maxDistance);
+        while (list.size() < maxCount && it.hasNext()) {
+            list.add(it.next());
+        }
+        return list;
+    }
+
+    static <T, S extends Geometry> Iterator<Entry<T, S>> iterator(Node<T, S> node, Rectangle r,
+            double maxDistance) {
+        return new NearestIterator<T, S>(node, r, maxDistance);
+    }
+
+    static final class NearestIterator<T, S extends Geometry> implements Iterator<Entry<T, S>> {
+
+        private final Rectangle r;
+        private final double maxDistance;
+        private final PriorityQueue<Candidate<T, S>> queue;
+        private long sequence;
+        private Entry<T, S> next;
+
+        NearestIterator(Node<T, S> node, Rectangle r, double maxDistance) {
+            this.r = r;
+            this.maxDistance = maxDistance;
+            this.queue = new PriorityQueue<Candidate<T, S>>();
+            double d = node.geometry().distance(r);
+            if (d < maxDistance) {
+                queue.add(new Candidate<T, S>(node, null, d, sequence++));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            load();
+            return next != null;
+        }
+
+        @Override
+        public Entry<T, S> next() {
+            load();
+            if (next == null) {
+                throw new NoSuchElementException();
+            } else {
+                Entry<T, S> v = next;
+                next = null;
+                return v;
+            }
+        }
+
+        private void load() {
+            if (next == null) {
+                next = search();
+            }
+        }
+
+        private Entry<T, S> search() {
+            while (!queue.isEmpty()) {
+                Candidate<T, S> c = queue.poll();
+                if (c.entry != null) {
+                    // no node or entry left in the queue can be closer
+                    return c.entry;
+                } else if (c.node instanceof NonLeaf) {
+                    expandNonLeaf((NonLeaf<T, S>) c.node);
+                } else {
+                    expandLeaf((Leaf<T, S>) c.node);
+                }
+            }
+            return null;
+        }
+
+        private void expandNonLeaf(NonLeaf<T, S> node) {
+            for (int i = 0; i < node.count(); i++) {
+                Node<T, S> child = node.child(i);
+                double d = child.geometry().distance(r);
+                if (d < maxDistance) {
+                    queue.add(new Candidate<T, S>(child, null, d, sequence++));
+                }
+            }
+        }
+
+        private void expandLeaf(Leaf<T, S> leaf) {
+            for (int i = 0; i < leaf.count(); i++) {
+                Entry<T, S> entry = leaf.entry(i);
+                double d = entry.geometry().distance(r);
+                if (d < maxDistance) {
+                    queue.add(new Candidate<T, S>(null, entry, d, sequence++));
+                }
+            }
+        }
+
+    }
+
+    /**
+     * A node or an entry waiting in the queue. Entries are ordered before nodes at
+     * the same distance so that results are reported as early as possible and
+     * ties are otherwise broken by insertion order.
+     */
+    static final class Candidate<T, S extends Geometry> implements Comparable<Candidate<T, S>> {
+
+        final Node<T, S> node;
+        final Entry<T, S> entry;
+        final double distance;
+        final long sequence;
+
+        Candidate(Node<T, S> node, Entry<T, S> entry, double distance, long sequence) {
+            this.node = node;
+            this.entry = entry;
+            this.distance = distance;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Candidate<T, S> o) {
+            int value = Double.compare(distance, o.distance);
+            if (value != 0) {
+                return value;
+            } else if (entry != null && o.entry == null) {
+                return -1;
+            } else if (entry == null && o.entry != null) {
+                return 1;
+            } else {
+                return Long.compare(sequence, o.sequence);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,148 @@
+package com.github.davidmoten.rtree2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.BiConsumer;
+
+import com.github.davidmoten.guavamini.Preconditions;
+import com.github.davidmoten.rtree2.Nearest.Candidate;
+import com.github.davidmoten.rtree2.geometry.Geometry;
+import com.github.davidmoten.rtree2.geometry.Rectangle;
+import com.github.davidmoten.rtree2.geometry.internal.GeometryUtil;
+
+/**
+ * All-nearest-neighbour (kNN) join. The entries of each leaf of the first tree
+ * share one best-first traversal of the second tree, ordered by the distance
+ * (MINDIST) between the leaf mbr and each node mbr. A node is pruned when its
+ * MINDIST is no better than the current k-th nearest distance of every entry in
+ * the leaf, or exceeds the MAXDIST upper bound given by any node known to hold
+ * at least k entries.
+ */
+final class NearestJoin {
+
+    private NearestJoin() {
+        // prevent instantiation
+    }
+
+    static <T, S extends Geometry, U, V extends Geometry> void join(Node<T, S> a, Node<U, V> b,
+            double maxDistance, int maxCount,
+            BiConsumer<? super Entry<T, S>, ? super List<Entry<U, V>>> consumer) {
+        Preconditions.checkArgument(maxCount > 0, "maxCount must be > 0");
+        if (a instanceof Leaf) {
+            joinLeaf((Leaf<T, S>) a, b, maxDistance, maxCount, consumer);
+        } else {
+            NonLeaf<T, S> n = (NonLeaf<T, S>) a;
+            for (int i = 0; i < n.count(); i++) {
+                join(n.child(i), b, maxDistance, maxCount, consumer);
+            }
+        }
+    }
+
+    private static <T, S extends Geometry, U, V extends Geometry> void joinLeaf(Leaf<T, S> leaf,
+            Node<U, V> root, double maxDistance, int maxCount,
+            BiConsumer<? super Entry<T, S>, ? super List<Entry<U, V>>> consumer) {
+        Rectangle group = leaf.geometry().mbr();
+        List<Neighbours<U, V>> neighbours = new ArrayList<Neighbours<U, V>>(leaf.count());
+        for (int i = 0; i < leaf.count(); i++) {
+            neighbours.add(new Neighbours<U, V>(leaf.entry(i).geometry().mbr(), maxDistance,
+                    maxCount));
+        }
+        PriorityQueue<Candidate<U, V>> queue = new PriorityQueue<Candidate<U, V>>();
+        long sequence = 0;
+        double bound = maxDistance;
+        double upper = Double.POSITIVE_INFINITY;
+        queue.add(new Candidate<U, V>(root, null, group.distance(root.geometry().mbr()),
+                sequence++));
+        while (!queue.isEmpty()) {
+            Candidate<U, V> c = queue.poll();
+            if (c.distance >= bound || c.distance > upper) {
+                // queue is ordered by distance so nothing further can improve
+                break;
+            }
+            if (c.node instanceof NonLeaf) {
+                NonLeaf<U, V> n = (NonLeaf<U, V>) c.node;
+                for (int i = 0; i < n.count(); i++) {
+                    Node<U, V> child = n.child(i);
+                    Rectangle r = child.geometry().mbr();
+                    double d = group.distance(r);
+                    if (d < bound && d <= upper) {
+                        if (child.size() >= maxCount) {
+                            // every entry of the group has at least maxCount
+                            // entries within the max distance between the mbrs
+                            upper = Math.min(upper, GeometryUtil.maxDistance(group, r));
+                        }
+                        queue.add(new Candidate<U, V>(child, null, d, sequence++));
+                    }
+                }
+            } else {
+                Leaf<U, V> lf = (Leaf<U, V>) c.node;
+                bound = 0;
+                for (Neighbours<U, V> nb : neighbours) {
+                    nb.addAll(lf);
+                    bound = Math.max(bound, nb.bound());
+                }
+            }
+        }
+        for (int i = 0; i < leaf.count(); i++) {
+            consumer.accept(leaf.entry(i), neighbours.get(i).asOrderedList());
+        }
+    }
+
+    /**
+     * The nearest entries found so far to one query rectangle, held in a bounded
+     * max-heap.
+     */
+    private static final class Neighbours<U, V extends Geometry> {
+
+        private final Rectangle r;
+        private final double maxDistance;
+        private final int maxCount;
+        private final PriorityQueue<Candidate<U, V>> heap;
+        private long sequence;
+
+        Neighbours(Rectangle r, double maxDistance, int maxCount) {
+            this.r = r;
+            this.maxDistance = maxDistance;
+            this.maxCount = maxCount;
+            this.heap = new PriorityQueue<Candidate<U, V>>(Collections.reverseOrder());
+        }
+
+        double bound() {
+            if (heap.size() < maxCount) {
+                return maxDistance;
+            } else {
+                return heap.peek().distance;
+            }
+        }
+
+        void addAll(Leaf<U, V> leaf) {
+            for (int i = 0; i < leaf.count(); i++) {
+                Entry<U, V> entry = leaf.entry(i);
+                double bound = bound();
+                if (entry.geometry().mbr().distance(r) < bound) {
+                    double d = entry.geometry().distance(r);
+                    if (d < bound) {
+                        if (heap.size() == maxCount) {
+                            heap.poll();
+                        }
+                        heap.add(new Candidate<U, V>(null, entry, d, sequence++));
+                    }
+                }
+            }
+        }
+
+        List<Entry<U, V>> asOrderedList() {
+            List<Candidate<U, V>> list = new ArrayList<Candidate<U, V>>(heap);
+            Collections.sort(list);
+            List<Entry<U, V>> entries = new ArrayList<Entry<U, V>>(list.size());
+            for (Candidate<U, V> c : list) {
+                entries.add(c.entry);
+            }
+            return entries;
+        }
+
+    }
+
+}
@@ -12,8 +12,21 @@ public interface Node<T, S extends Geometry> extends HasGeometry {
 
     NodeAndEntries<T, S> delete(Entry<? extends T, ? extends S> entry, boolean all);
 
+    /**
+     * Returns the number of children of this node (the number of entries for a
+     * {@link Leaf}).
+     * 
+     * @return number of children
+     */
     int count();
 
+    /**
+     * Returns the total number of entries in the subtree rooted at this node.
+     * 
+     * @return number of entries at or below this node
+     */
+    int size();
+
     Context<T, S> context();
 
 }
@@ -8,11 +8,28 @@ final class NodePosition<T, S extends Geometry> {
 
     private Node<T, S> node;
     private int position;
+    private final boolean covered;
 
     NodePosition(Node<T, S> node, int position) {
+        this(node, position, false);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param node
+     *            the node
+     * @param position
+     *            position of the next child or entry to visit
+     * @param covered
+     *            true if every descendant of the node is known to match so that
+     *            no further tests are required
+     */
+    NodePosition(Node<T, S> node, int position, boolean covered) {
         Preconditions.checkNotNull(node);
         this.node = node;
         this.position = position;
+        this.covered = covered;
     }
 
     Node<T, S> node() {
@@ -23,6 +40,10 @@ final class NodePosition<T, S extends Geometry> {
         return position;
     }
     
+    boolean covered() {
+        return covered;
+    }
+    
     boolean hasRemaining() {
         return position != node.count();
     }
@@ -37,6 +58,8 @@ final class NodePosition<T, S extends Geometry> {
                 node +
                 ", position=" +
                 position +
+                ", covered=" +
+                covered +
                 "]";
         return builder;
     }
@@ -17,4 +17,20 @@ public interface NonLeaf<T, S extends Geometry> extends Node<T, S> {
      */
     List<Node<T, S>> children();
 
-}
\ No newline at end of file
+    /**
+     * Returns the total number of entries in the subtree rooted at this node.
+     * Implementations are encouraged to cache this value on construction as the
+     * default implementation visits every descendant node.
+     * 
+     * @return number of entries below this node
+     */
+    @Override
+    default int size() {
+        int size = 0;
+        for (int i = 0; i < count(); i++) {
+            size += child(i).size();
+        }
+        return size;
+    }
+
+}
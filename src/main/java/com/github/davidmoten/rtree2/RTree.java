@@ -10,22 +10,36 @@ import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Random;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
 import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.github.davidmoten.guavamini.Lists;
+import com.github.davidmoten.guavamini.Preconditions;
 import com.github.davidmoten.guavamini.annotations.VisibleForTesting;
+import com.github.davidmoten.rtree2.geometry.Box;
 import com.github.davidmoten.rtree2.geometry.Circle;
+import com.github.davidmoten.rtree2.geometry.Geometries;
 import com.github.davidmoten.rtree2.geometry.Geometry;
 import com.github.davidmoten.rtree2.geometry.HasGeometry;
 import com.github.davidmoten.rtree2.geometry.Intersects;
 import com.github.davidmoten.rtree2.geometry.Line;
 import com.github.davidmoten.rtree2.geometry.Point;
+import com.github.davidmoten.rtree2.geometry.Polygon;
 import com.github.davidmoten.rtree2.geometry.Rectangle;
-import com.github.davidmoten.rtree2.internal.Comparators;
+import com.github.davidmoten.rtree2.geometry.TimeScale;
+import com.github.davidmoten.rtree2.geometry.internal.GeometryUtil;
 import com.github.davidmoten.rtree2.internal.NodeAndEntries;
-import com.github.davidmoten.rtree2.internal.util.BoundedPriorityQueue;
 
 /**
  * Immutable in-memory 2D R-Tree with configurable splitter heuristic.
@@ -57,6 +71,19 @@ public final class RTree<T, S extends Geometry> {
      */
     private final int size;
 
+    private static final AtomicLong TREE_IDS = new AtomicLong();
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static final AtomicLongFieldUpdater<RTree<?, ?>> ID =
+            (AtomicLongFieldUpdater) AtomicLongFieldUpdater.newUpdater(RTree.class, "id");
+
+    /**
+     * Identifies this instance so that search cursors can't be used with another
+     * tree. Assigned without locking on the first paged search (0 until then) so
+     * that building trees doesn't contend on {@link #TREE_IDS}.
+     */
+    private volatile long id;
+
     /**
      * Constructor.
      * 
@@ -205,6 +232,18 @@ public final class RTree<T, S extends Geometry> {
         return new Builder().star();
     }
 
+    /**
+     * Sets the {@link Monoid}s under each of which every node maintains the
+     * summary of the values of the entries below it.
+     * 
+     * @param monoids
+     *            each summarizes entry values
+     * @return builder
+     */
+    public static Builder summary(Monoid<?, ?>... monoids) {
+        return new Builder().summary(monoids);
+    }
+
     /**
      * RTree Builder.
      */
@@ -224,6 +263,7 @@ public final class RTree<T, S extends Geometry> {
         private double loadingFactor;
         private boolean star = false;
         private Factory<Object, Geometry> factory = Factories.defaultFactory();
+        private List<Monoid<Object, ?>> monoids = Collections.emptyList();
 
         private Builder() {
             loadingFactor = DEFAULT_LOADING_FACTOR;
@@ -314,6 +354,32 @@ public final class RTree<T, S extends Geometry> {
             return this;
         }
 
+        /**
+         * Sets the {@link Monoid}s under each of which every node maintains the
+         * summary of the values of the entries below it. Summaries are computed
+         * when nodes are created so they are kept up to date by adds, deletes and
+         * bulk loading at the cost of combining the summaries of the children of
+         * each new node. {@link RTree#aggregate(Rectangle, Monoid)} uses them when
+         * passed a monoid equal to one of these and
+         * {@link RTree#topK(Rectangle, ToDoubleFunction, int)} uses them when one of
+         * these equals {@link Monoid#max(ToDoubleFunction)} of its score, so one
+         * tree can serve both. By default no summaries are maintained.
+         * 
+         * @param monoids
+         *            each summarizes entry values
+         * @return builder
+         */
+        @SuppressWarnings("unchecked")
+        public Builder summary(Monoid<?, ?>... monoids) {
+            List<Monoid<Object, ?>> list = new ArrayList<Monoid<Object, ?>>(monoids.length);
+            for (Monoid<?, ?> monoid : monoids) {
+                Preconditions.checkNotNull(monoid);
+                list.add((Monoid<Object, ?>) monoid);
+            }
+            this.monoids = list;
+            return this;
+        }
+
         /**
          * Builds the {@link RTree}.
          * 
@@ -328,7 +394,7 @@ public final class RTree<T, S extends Geometry> {
             setDefaultCapacity();
 
             return new RTree<T, S>(Optional.<Node<T, S>>empty(), 0, new Context<T, S>(minChildren.get(),
-                    maxChildren.get(), selector, splitter, (Factory<T, S>) factory));
+                    maxChildren.get(), selector, splitter, (Factory<T, S>) factory, monoids));
         }
 
         /**
@@ -349,10 +415,26 @@ public final class RTree<T, S extends Geometry> {
             setDefaultCapacity();
 
             Context<T, S> context = new Context<T, S>(minChildren.get(), maxChildren.get(), selector, splitter,
-                    (Factory<T, S>) factory);
+                    (Factory<T, S>) factory, monoids);
             return packingSTR(entries, true, entries.size(), context);
         }
 
+        /**
+         * Builds an empty {@link ConcurrentRTree} with the configured options.
+         *
+         * @param <T>
+         *            value type
+         * @param <S>
+         *            geometry type
+         * @return empty ConcurrentRTree
+         */
+        @SuppressWarnings("unchecked")
+        public <T, S extends Geometry> ConcurrentRTree<T, S> createConcurrent() {
+            setDefaultCapacity();
+            return new ConcurrentRTree<T, S>(new Context<T, S>(minChildren.get(),
+                    maxChildren.get(), selector, splitter, (Factory<T, S>) factory, monoids));
+        }
+
         private void setDefaultCapacity() {
             if (!maxChildren.isPresent())
                 if (star)
@@ -381,35 +463,74 @@ public final class RTree<T, S extends Geometry> {
                 return new RTree<T, S>(of(root), size, context);
             }
 
-            int nodePerSlice = (int) Math.ceil(Math.sqrt(nodeCount));
-            int sliceCapacity = nodePerSlice * capacity;
-            int sliceCount = (int) Math.ceil(1.0 * objects.size() / sliceCapacity);
-            Collections.sort(objects, new MidComparator((short) 0));
+            List<Node<T, S>> nodes = pack(objects, capacity, isLeaf, context);
+            return packingSTR(nodes, false, size, context);
+        }
+
+        /**
+         * Packs one level of the tree using STR, returning the nodes that hold the
+         * given objects (entries if <code>isLeaf</code>, otherwise nodes) in groups
+         * of at most <code>capacity</code>. Mutates the order of
+         * <code>objects</code>.
+         */
+        static <T, S extends Geometry> List<Node<T, S>> pack(List<? extends HasGeometry> objects,
+                int capacity, boolean isLeaf, Context<T, S> context) {
+            int nodeCount = (int) Math.ceil(1.0 * objects.size() / capacity);
+            int dimensions = objects.get(0).geometry().mbr().dimensions();
+            // the number of slices per dimension is the d-th root of the node count
+            int nodePerSlice = dimensions == 2 ? (int) Math.ceil(Math.sqrt(nodeCount))
+                    : (int) Math.ceil(Math.pow(nodeCount, 1.0 / dimensions) - 1e-9);
 
             List<Node<T, S>> nodes = new ArrayList<Node<T, S>>(nodeCount);
-            for (int s = 0; s < sliceCount; s++) {
-                @SuppressWarnings("rawtypes")
-                List slice = objects.subList(s * sliceCapacity, Math.min((s + 1) * sliceCapacity, objects.size()));
-                Collections.sort(slice, new MidComparator((short) 1));
+            packSlices(objects, 0, dimensions, nodePerSlice, capacity, isLeaf, context, nodes);
+            return nodes;
+        }
+
+        /**
+         * Returns the number of children per node when packing with the default
+         * loading factor.
+         */
+        static int defaultCapacity(int maxChildren) {
+            return Math.max(1, (int) Math.round(maxChildren * DEFAULT_LOADING_FACTOR));
+        }
 
-                for (int i = 0; i < slice.size(); i += capacity) {
+        /**
+         * Sorts the objects by the given dimension and cuts them into slices, each
+         * of which is sliced by the next dimension, until the last dimension is cut
+         * into nodes.
+         */
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        private static <T, S extends Geometry> void packSlices(List objects, int dimension,
+                int dimensions, int nodePerSlice, int capacity, boolean isLeaf,
+                Context<T, S> context, List<Node<T, S>> nodes) {
+            Collections.sort(objects, new MidComparator((short) dimension));
+            if (dimension == dimensions - 1) {
+                for (int i = 0; i < objects.size(); i += capacity) {
                     if (isLeaf) {
-                        List<Entry<T, S>> entries = slice.subList(i, Math.min(slice.size(), i + capacity));
+                        List<Entry<T, S>> entries = objects.subList(i, Math.min(objects.size(), i + capacity));
                         Node<T, S> leaf = context.factory().createLeaf(entries, context);
                         nodes.add(leaf);
                     } else {
-                        List<Node<T, S>> children = slice.subList(i, Math.min(slice.size(), i + capacity));
+                        List<Node<T, S>> children = objects.subList(i, Math.min(objects.size(), i + capacity));
                         Node<T, S> nonleaf = context.factory().createNonLeaf(children, context);
                         nodes.add(nonleaf);
                     }
                 }
+            } else {
+                long sliceCapacity = capacity;
+                for (int i = dimension + 1; i < dimensions; i++) {
+                    sliceCapacity *= nodePerSlice;
+                }
+                for (long s = 0; s < objects.size(); s += sliceCapacity) {
+                    List slice = objects.subList((int) s, (int) Math.min(s + sliceCapacity, objects.size()));
+                    packSlices(slice, dimension + 1, dimensions, nodePerSlice, capacity, isLeaf, context,
+                            nodes);
+                }
             }
-            return packingSTR(nodes, false, size, context);
         }
 
         private static final class MidComparator implements Comparator<HasGeometry> {
-            private final short dimension; // leave space for multiple dimensions, 0 for x, 1 for y,
-                                           // ...
+            private final short dimension; // 0 for x, 1 for y, 2 for z, ...
 
             public MidComparator(short dim) {
                 dimension = dim;
@@ -424,8 +545,10 @@ public final class RTree<T, S extends Geometry> {
                 Rectangle mbr = o.geometry().mbr();
                 if (dimension == 0)
                     return (mbr.x1() + mbr.x2()) / 2;
-                else
+                else if (dimension == 1)
                     return (mbr.y1() + mbr.y2()) / 2;
+                else
+                    return (mbr.lower(dimension) + mbr.upper(dimension)) / 2;
             }
         }
 
@@ -484,6 +607,40 @@ public final class RTree<T, S extends Geometry> {
         return tree;
     }
 
+    /**
+     * Returns an immutable RTree with the current entries and the additional
+     * entries supplied as a parameter. Unlike {@link #add(Iterable)}, which
+     * copies the path from the root for every entry, the batch is packed into
+     * leaves using STR and the leaves are grafted into the tree in a single
+     * pass. Batches too small to fill a leaf are added one entry at a time.
+     *
+     * @param entries
+     *            entries to add
+     * @return R-tree with entries added
+     */
+    public RTree<T, S> addBatch(Iterable<Entry<T, S>> entries) {
+        List<Entry<T, S>> list = Lists.newArrayList(entries);
+        if (list.size() < context.maxChildren()) {
+            return add(list);
+        } else {
+            Node<T, S> node = BulkAdd.add(root.orElse(null), list, context);
+            return new RTree<T, S>(node, size + list.size(), context);
+        }
+    }
+
+    /**
+     * Returns a single-threaded mutable editor initialized with the entries of
+     * this tree. A sequence of adds and deletes through the editor copies each
+     * affected node at most once rather than copying the path from the root for
+     * every operation. Call {@link TransientRTree#persistent()} to obtain the
+     * result as an immutable RTree. This RTree is not modified.
+     * 
+     * @return transient editor of a copy of this tree
+     */
+    public TransientRTree<T, S> asTransient() {
+        return new TransientRTree<T, S>(root, size, context);
+    }
+
     /**
      * Returns a new R-tree with the given entries deleted. If <code>all</code> is
      * false deletes only one if exists. If <code>all</code> is true deletes all
@@ -517,6 +674,45 @@ public final class RTree<T, S extends Geometry> {
         return tree;
     }
 
+    /**
+     * Returns a new R-tree with the given entries deleted. Has the same effect as
+     * {@link #delete(Iterable, boolean)} but rather than descending the tree once
+     * per entry the tree is traversed once for the whole batch, each affected
+     * node is rebuilt once and the entries of leaves that fall below minChildren
+     * are added back using {@link #addBatch(Iterable)}.
+     *
+     * @param entries
+     *            entries to delete
+     * @param all
+     *            if false deletes one match per occurrence in
+     *            <code>entries</code> else deletes all matches
+     * @return R-tree with entries deleted
+     */
+    public RTree<T, S> deleteBatch(Iterable<Entry<T, S>> entries, boolean all) {
+        if (root.isPresent()) {
+            BulkDelete<T, S> d = BulkDelete.delete(root.get(), entries, all);
+            if (d.root() == root.get())
+                return this;
+            else
+                return new RTree<T, S>(Optional.ofNullable(d.root()),
+                        size - d.countDeleted() - d.orphans().size(), context)
+                                .addBatch(d.orphans());
+        } else
+            return this;
+    }
+
+    /**
+     * Returns a new R-tree with the given entries deleted in a single traversal
+     * but only one matching occurence of each entry is deleted.
+     *
+     * @param entries
+     *            entries to delete
+     * @return R-tree with entries deleted up to one matching occurence per entry
+     */
+    public RTree<T, S> deleteBatch(Iterable<Entry<T, S>> entries) {
+        return deleteBatch(entries, false);
+    }
+
     /**
      * If <code>all</code> is false deletes one entry matching the given value and
      * Geometry. If <code>all</code> is true deletes all entries matching the given
@@ -618,6 +814,43 @@ public final class RTree<T, S extends Geometry> {
             return Collections.emptyList();
     }
 
+    /**
+     * As for {@link #search(Predicate)} but when <code>covered</code> is true for
+     * the minimum bounding rectangle of a node then all entries below that node
+     * are returned without testing <code>condition</code>.
+     * 
+     * @param condition
+     *            return Entries whose geometry satisfies the given condition
+     * @param covered
+     *            if true for a node then condition is true for all its descendants
+     * @return sequence of matching entries
+     */
+    private Iterable<Entry<T, S>> search(Predicate<? super Geometry> condition,
+            Predicate<? super Geometry> covered) {
+        if (root.isPresent())
+            return Search.search(root.get(), condition, covered);
+        else
+            return Collections.emptyList();
+    }
+
+    /**
+     * Returns a {@link Stream} of {@link Entry} that satisfy the given condition.
+     * The same restrictions on <code>condition</code> apply as for
+     * {@link #search(Predicate)}. The stream splits by handing off whole subtrees
+     * so a parallel stream searches disjoint parts of the tree concurrently.
+     * 
+     * @param condition
+     *            return Entries whose geometry satisfies the given condition
+     * @return stream of matching entries
+     */
+    @VisibleForTesting
+    Stream<Entry<T, S>> searchStream(Predicate<? super Geometry> condition) {
+        if (root.isPresent())
+            return StreamSupport.stream(Search.spliterator(root.get(), condition, size), false);
+        else
+            return StreamSupport.stream(Spliterators.<Entry<T, S>>emptySpliterator(), false);
+    }
+
     /**
      * Returns a predicate function that indicates if {@link Geometry} intersects
      * with a given rectangle.
@@ -655,7 +888,114 @@ public final class RTree<T, S extends Geometry> {
      * @return entries that intersect with the rectangle r
      */
     public Iterable<Entry<T, S>> search(final Rectangle r) {
-        return search(intersects(r));
+        return search(intersects(r), g -> GeometryUtil.contains(r, g.mbr()));
+    }
+
+    /**
+     * Returns a {@link Stream} of all {@link Entry}s in the R-tree whose minimum
+     * bounding rectangle intersects with the given rectangle. Call
+     * {@link Stream#parallel()} on the result to search subtrees concurrently.
+     * 
+     * @param r
+     *            rectangle to check intersection with the entry mbr
+     * @return stream of entries that intersect with the rectangle r
+     */
+    public Stream<Entry<T, S>> searchStream(final Rectangle r) {
+        return searchStream(intersects(r));
+    }
+
+    /**
+     * Returns a {@link Stream} of all {@link Entry}s in the R-tree whose minimum
+     * bounding rectangle intersects with the given point.
+     * 
+     * @param p
+     *            point to check intersection with the entry mbr
+     * @return stream of entries that intersect with the point p
+     */
+    public Stream<Entry<T, S>> searchStream(final Point p) {
+        return searchStream(p.mbr());
+    }
+
+    /**
+     * Passes every {@link Entry} in the R-tree whose geometry intersects with the
+     * given rectangle to <code>consumer</code>. This is a push-based alternative to
+     * {@link #search(Rectangle)} that avoids allocating an iterator and its stack
+     * of node positions. It is not an overload of <code>search</code> so that
+     * method references like <code>list::add</code> are not ambiguous with
+     * {@link #search(Geometry, BiPredicate)}.
+     * 
+     * @param r
+     *            rectangle to check intersection with the entry mbr
+     * @param consumer
+     *            receives each entry that intersects with the rectangle r
+     */
+    public void forEach(final Rectangle r, final Consumer<? super Entry<T, S>> consumer) {
+        visit(r, entry -> {
+            consumer.accept(entry);
+            return SearchVisitor.Action.CONTINUE;
+        });
+    }
+
+    /**
+     * Visits the nodes and entries in the R-tree that intersect with the given
+     * rectangle, depth-first. The visitor can skip subtrees or terminate the
+     * traversal early via the {@link SearchVisitor.Action} it returns.
+     * 
+     * @param r
+     *            rectangle to check intersection with
+     * @param visitor
+     *            receives matching nodes and entries
+     * @return false if the visitor terminated the traversal with
+     *         {@link SearchVisitor.Action#STOP} otherwise true
+     */
+    public boolean visit(final Rectangle r, final SearchVisitor<T, S> visitor) {
+        return visit(intersects(r), g -> GeometryUtil.contains(r, g.mbr()), visitor);
+    }
+
+    private boolean visit(Predicate<? super Geometry> condition, Predicate<? super Geometry> covered,
+            SearchVisitor<T, S> visitor) {
+        if (root.isPresent())
+            return Search.visit(root.get(), condition, covered, visitor);
+        else
+            return true;
+    }
+
+    /**
+     * Searches for the entries intersecting each of the given rectangles with a
+     * single traversal of the R-tree. For each match <code>consumer</code> is
+     * passed the entry and the index of the rectangle in <code>rectangles</code>
+     * that it intersects. Because {@link Point} is a {@link Rectangle} a list of
+     * points can be passed to find the entries containing each point. For batches
+     * of spatially clustered queries this visits far fewer nodes than calling
+     * {@link #search(Rectangle)} once per rectangle.
+     * 
+     * @param rectangles
+     *            the query rectangles
+     * @param consumer
+     *            receives each matching entry with the index of its query
+     */
+    public void searchAll(final List<? extends Rectangle> rectangles,
+            final ObjIntConsumer<? super Entry<T, S>> consumer) {
+        if (root.isPresent())
+            BatchSearch.search(root.get(), calculateDepth(), rectangles, consumer);
+    }
+
+    /**
+     * Searches for the entries intersecting each of the given rectangles with a
+     * single traversal of the R-tree (see {@link #searchAll(List, ObjIntConsumer)}).
+     * 
+     * @param rectangles
+     *            the query rectangles
+     * @return a list the same size as <code>rectangles</code> where the ith
+     *         element is the list of entries intersecting the ith rectangle
+     */
+    public List<List<Entry<T, S>>> searchAll(final List<? extends Rectangle> rectangles) {
+        List<List<Entry<T, S>>> results = new ArrayList<List<Entry<T, S>>>(rectangles.size());
+        for (int i = 0; i < rectangles.size(); i++) {
+            results.add(new ArrayList<Entry<T, S>>());
+        }
+        searchAll(rectangles, (entry, i) -> results.get(i).add(entry));
+        return results;
     }
 
     /**
@@ -670,12 +1010,93 @@ public final class RTree<T, S extends Geometry> {
         return search(p.mbr());
     }
 
-    public Iterable<Entry<T, S>> search(Circle circle) {
-        return search(circle, Intersects.geometryIntersectsCircle);
+    /**
+     * Returns an {@link Iterable} sequence of all {@link Entry}s in the R-tree
+     * whose geometry intersects with the given circle. The circle is tested
+     * directly against the minimum bounding rectangles of nodes (rather than its
+     * own minimum bounding rectangle) so subtrees outside the circle but inside
+     * its bounding box are not visited, and subtrees wholly inside the circle are
+     * returned without further tests.
+     * 
+     * @param circle
+     *            circle to check intersection with
+     * @return entries that intersect with the circle
+     */
+    public Iterable<Entry<T, S>> search(final Circle circle) {
+        return search(g -> Intersects.geometryIntersectsCircle.test(g, circle),
+                g -> GeometryUtil.contains(circle, g.mbr()));
     }
 
-    public Iterable<Entry<T, S>> search(Line line) {
-        return search(line, Intersects.geometryIntersectsLine);
+    /**
+     * Returns an {@link Iterable} sequence of all {@link Entry}s in the R-tree
+     * whose geometry intersects with the given line. The line is tested directly
+     * against the minimum bounding rectangles of nodes (rather than its own minimum
+     * bounding rectangle) so that for a long diagonal line only the nodes it
+     * actually crosses are visited.
+     * 
+     * @param line
+     *            line to check intersection with
+     * @return entries that intersect with the line
+     */
+    public Iterable<Entry<T, S>> search(final Line line) {
+        return search(g -> Intersects.geometryIntersectsLine.test(g, line));
+    }
+
+    /**
+     * Returns an {@link Iterable} sequence of all {@link Entry}s in the R-tree
+     * whose geometry intersects with the given polygon. Nodes lying wholly outside
+     * the polygon are pruned and nodes lying wholly inside it are returned without
+     * further tests, using the polygon's edge index rather than ray casting over
+     * every vertex.
+     * 
+     * @param polygon
+     *            polygon to check intersection with
+     * @return entries that intersect with the polygon
+     */
+    public Iterable<Entry<T, S>> search(final Polygon polygon) {
+        return search(g -> Intersects.geometryIntersectsPolygon.test(g, polygon),
+                g -> polygon.contains(g.mbr()));
+    }
+
+    /**
+     * Returns an {@link Iterable} sequence of all {@link Entry}s in a
+     * spatio-temporal R-tree (entries created with
+     * {@link Geometries#spaceTime(Rectangle, long, long, TimeScale)} or
+     * {@link Geometries#spaceTime(double, double, long, TimeScale)}) that
+     * intersect the region during the time interval [from, to].
+     * 
+     * @param r
+     *            spatial region
+     * @param from
+     *            start time
+     * @param to
+     *            end time
+     * @param scale
+     *            the time scale of the entries
+     * @return entries that intersect r at some time in the interval
+     */
+    public Iterable<Entry<T, S>> search(final Rectangle r, final long from, final long to,
+            final TimeScale scale) {
+        return search(Geometries.spaceTime(r, from, to, scale));
+    }
+
+    /**
+     * Returns the number of entries that would be returned by
+     * {@link #search(Rectangle, long, long, TimeScale)}.
+     * 
+     * @param r
+     *            spatial region
+     * @param from
+     *            start time
+     * @param to
+     *            end time
+     * @param scale
+     *            the time scale of the entries
+     * @return number of entries that intersect r at some time in the interval
+     */
+    public int count(final Rectangle r, final long from, final long to,
+            final TimeScale scale) {
+        return count(Geometries.spaceTime(r, from, to, scale));
     }
 
     /**
@@ -696,6 +1117,240 @@ public final class RTree<T, S extends Geometry> {
         return Iterables.filter(search(g.mbr()), entry -> intersects.test(entry.geometry(), g));
     }
 
+    /**
+     * Returns the number of {@link Entry}s in the R-tree whose geometry intersects
+     * with the given rectangle. This is the same as the number of entries returned
+     * by {@link #search(Rectangle)} but nodes wholly inside the rectangle contribute
+     * their cached entry count without being descended.
+     * 
+     * @param r
+     *            rectangle to check intersection with
+     * @return the number of entries that intersect with the rectangle r
+     */
+    public int count(final Rectangle r) {
+        if (root.isPresent())
+            return Count.count(root.get(), r);
+        else
+            return 0;
+    }
+
+    /**
+     * Returns the summary of the values of the {@link Entry}s in the R-tree whose
+     * geometry intersects with the given rectangle, as if the values of the entries
+     * returned by {@link #search(Rectangle)} were combined in order. If
+     * <code>monoid</code> equals a monoid configured with
+     * {@link Builder#summary(Monoid...)} then nodes wholly inside the rectangle
+     * contribute their maintained summary without being descended, otherwise
+     * every entry that intersects the rectangle is visited.
+     * 
+     * @param <A>
+     *            summary type
+     * @param r
+     *            rectangle to check intersection with
+     * @param monoid
+     *            summarizes entry values
+     * @return the summary of the values of the entries that intersect with r
+     */
+    public <A> A aggregate(final Rectangle r, final Monoid<? super T, A> monoid) {
+        if (root.isPresent())
+            return Aggregate.aggregate(root.get(), r, monoid);
+        else
+            return monoid.identity();
+    }
+
+    /**
+     * Returns the k {@link Entry}s with the highest scores amongst those whose
+     * geometry intersects with the given rectangle, highest score first. If
+     * {@link Monoid#max(ToDoubleFunction)} of <code>score</code> was configured
+     * with {@link Builder#summary(Monoid...)} (the same function instance must be
+     * passed to both) then the maintained summaries bound the scores below each
+     * node so nodes are explored best-first and the search stops once no
+     * unexplored node can beat the k-th best entry found. Otherwise every entry
+     * that intersects the rectangle is scored keeping only the best k.
+     * 
+     * @param r
+     *            rectangle to check intersection with
+     * @param score
+     *            scores entry values
+     * @param k
+     *            maximum number of entries to return
+     * @return the top scoring entries that intersect with r in descending score
+     *         order
+     */
+    public List<Entry<T, S>> topK(final Rectangle r, final ToDoubleFunction<? super T> score,
+            final int k) {
+        if (root.isPresent())
+            return TopK.topK(root.get(), r, score, k);
+        else
+            return Collections.emptyList();
+    }
+
+    /**
+     * Returns a uniform random sample of at most n distinct {@link Entry}s from
+     * those whose geometry intersects with the given rectangle (all of them if
+     * there are no more than n). The matches are not enumerated: nodes wholly
+     * inside the rectangle are sampled by descending through their cached subtree
+     * sizes so the cost is proportional to the boundary of the rectangle plus
+     * n log N. The order of the returned entries is unspecified.
+     * 
+     * @param r
+     *            rectangle to check intersection with
+     * @param n
+     *            maximum number of entries to return
+     * @param random
+     *            source of randomness
+     * @return sample of the entries that intersect with r
+     */
+    public List<Entry<T, S>> sample(final Rectangle r, final int n, final Random random) {
+        if (root.isPresent())
+            return Sample.sample(root.get(), r, n, random);
+        else
+            return Collections.emptyList();
+    }
+
+    /**
+     * Returns the number of {@link Entry}s in each cell of a grid of
+     * <code>cols</code> by <code>rows</code> equal cells over the view rectangle.
+     * Each entry is counted in the cell containing the centre of its minimum
+     * bounding rectangle (entries whose centre is outside the view are not
+     * counted). Nodes lying wholly inside one cell contribute their cached entry
+     * count without being descended.
+     * 
+     * @param view
+     *            the rectangle covered by the grid
+     * @param cols
+     *            number of columns (along x)
+     * @param rows
+     *            number of rows (along y)
+     * @return the counts in row-major order starting from the cell at the minimum
+     *         x and y of the view, so the count for (col, row) is at index
+     *         <code>row * cols + col</code>
+     */
+    public int[] histogram(final Rectangle view, final int cols, final int rows) {
+        if (root.isPresent())
+            return Histogram.histogram(root.get(), view, cols, rows);
+        else
+            return new int[cols * rows];
+    }
+
+    /**
+     * Returns true if and only if some {@link Entry} in the R-tree has a geometry
+     * that intersects with the given rectangle. This is the same as
+     * <code>search(r).iterator().hasNext()</code> but returns as soon as a match is
+     * found without allocating an iterator.
+     * 
+     * @param r
+     *            rectangle to check intersection with
+     * @return true if any entry intersects with r
+     */
+    public boolean any(final Rectangle r) {
+        return root.isPresent() && Any.any(root.get(), r);
+    }
+
+    /**
+     * Returns true if and only if {@link #search(Geometry, BiPredicate)} would
+     * return at least one entry, returning as soon as a match is found.
+     * 
+     * @param <R>
+     *            type of geometry being searched for intersection with
+     * @param g
+     *            geometry being searched for intersection with
+     * @param intersects
+     *            function to determine if the two geometries intersect
+     * @return true if any entry intersects with g
+     */
+    public <R extends Geometry> boolean any(final R g,
+            final BiPredicate<? super S, ? super R> intersects) {
+        return root.isPresent() && Any.any(root.get(), g, g.mbr(), intersects);
+    }
+
+    /**
+     * Returns the number of {@link Entry}s in the R-tree whose geometry intersects
+     * with the given point.
+     * 
+     * @param p
+     *            point to check intersection with
+     * @return the number of entries that intersect with the point p
+     */
+    public int count(final Point p) {
+        return count(p.mbr());
+    }
+
+    /**
+     * Returns the number of entries that would be returned by
+     * {@link #search(Geometry, BiPredicate)} without materializing them.
+     * 
+     * @param <R>
+     *            type of geometry being searched for intersection with
+     * @param g
+     *            geometry being searched for intersection with
+     * @param intersects
+     *            function to determine if the two geometries intersect
+     * @return the number of entries that intersect with g
+     */
+    public <R extends Geometry> int count(final R g,
+            final BiPredicate<? super S, ? super R> intersects) {
+        if (root.isPresent())
+            return Count.count(root.get(), g, intersects);
+        else
+            return 0;
+    }
+
+    /**
+     * Returns the first page of the entries that would be returned by
+     * {@link #search(Rectangle)}, and a cursor to fetch the next page with if there
+     * are more.
+     * 
+     * @param r
+     *            rectangle to check intersection with
+     * @param pageSize
+     *            maximum number of entries in the page
+     * @return the first page of entries that intersect with r
+     */
+    public SearchPage<T, S> searchPage(final Rectangle r, final int pageSize) {
+        if (root.isPresent())
+            return Search.page(root.get(), intersects(r), g -> GeometryUtil.contains(r, g.mbr()),
+                    id(), r, null, pageSize);
+        else
+            return new SearchPage<T, S>(Collections.<Entry<T, S>> emptyList(),
+                    Optional.<SearchCursor> empty());
+    }
+
+    /**
+     * Returns the page of the entries that would be returned by
+     * {@link #search(Rectangle)} starting from the given cursor, and a cursor to
+     * fetch the next page with if there are more. The search resumes directly from
+     * the cursor position so earlier pages are not searched again.
+     * 
+     * @param r
+     *            rectangle to check intersection with (the same as for the page
+     *            the cursor came from)
+     * @param cursor
+     *            cursor from the previous page
+     * @param pageSize
+     *            maximum number of entries in the page
+     * @return the next page of entries that intersect with r
+     * @throws IllegalArgumentException
+     *             if the cursor was not created by this RTree instance for r
+     */
+    public SearchPage<T, S> searchPage(final Rectangle r, final SearchCursor cursor,
+            final int pageSize) {
+        Preconditions.checkArgument(root.isPresent(), "cursor was not created by this tree");
+        cursor.checkFor(id(), r);
+        return Search.page(root.get(), intersects(r), g -> GeometryUtil.contains(r, g.mbr()),
+                id(), r, cursor.path(), pageSize);
+    }
+
+    private long id() {
+        long v = id;
+        if (v == 0) {
+            // if another thread assigns first its id is kept and ours is unused
+            ID.compareAndSet(this, 0, TREE_IDS.incrementAndGet());
+            v = id;
+        }
+        return v;
+    }
+
     /**
      * Returns an {@link Iterable} sequence of all {@link Entry}s in the R-tree
      * whose minimum bounding rectangles are strictly less than maxDistance from the
@@ -757,6 +1412,8 @@ public final class RTree<T, S extends Geometry> {
     /**
      * Returns the nearest k entries (k=maxCount) to the given rectangle where the
      * entries are strictly less than a given maximum distance from the rectangle.
+     * Nodes are visited best-first in order of distance from the rectangle so only
+     * the nodes needed to establish the k nearest entries are expanded.
      * 
      * @param r
      *            rectangle
@@ -767,12 +1424,10 @@ public final class RTree<T, S extends Geometry> {
      * @return nearest entries to maxCount, in ascending order of distance
      */
     public Iterable<Entry<T, S>> nearest(final Rectangle r, final double maxDistance, int maxCount) {
-        BoundedPriorityQueue<Entry<T, S>> q = new BoundedPriorityQueue<Entry<T, S>>(maxCount,
-                Comparators.<T, S>ascendingDistance(r));
-        for (Entry<T, S> entry : search(r, maxDistance)) {
-            q.add(entry);
-        }
-        return q.asOrderedList();
+        if (root.isPresent())
+            return Nearest.nearest(root.get(), r, maxDistance, maxCount);
+        else
+            return Collections.emptyList();
     }
 
     /**
@@ -791,13 +1446,226 @@ public final class RTree<T, S extends Geometry> {
         return nearest(p.mbr(), maxDistance, maxCount);
     }
 
+    /**
+     * For every entry in this R-tree finds the nearest k entries (k=maxCount) in
+     * <code>other</code> that are strictly less than <code>maxDistance</code> from
+     * it, with the same meaning of distance as
+     * {@link #nearest(Rectangle, double, int)} using the entry's minimum bounding
+     * rectangle as the query. The entries of each leaf of this tree share one
+     * best-first traversal of <code>other</code> so work is reused between
+     * neighbouring entries rather than repeated for each one.
+     * 
+     * <p>
+     * Pruning uses the maximum Euclidean distance between node rectangles as an
+     * upper bound so entry geometries should not report a distance greater than
+     * the Euclidean distance between their minimum bounding rectangles (true of
+     * all the geometries in {@link com.github.davidmoten.rtree2.geometry.Geometries}).
+     * 
+     * @param <U>
+     *            value type of the other R-tree
+     * @param <V>
+     *            geometry type of the other R-tree
+     * @param other
+     *            R-tree to find nearest entries in
+     * @param maxDistance
+     *            max distance of the nearest entries
+     * @param maxCount
+     *            max number of nearest entries per entry of this tree
+     * @param consumer
+     *            receives each entry of this tree with its nearest entries in
+     *            <code>other</code> in ascending order of distance
+     */
+    public <U, V extends Geometry> void nearestJoin(RTree<U, V> other, final double maxDistance,
+            int maxCount, BiConsumer<? super Entry<T, S>, ? super List<Entry<U, V>>> consumer) {
+        if (root.isPresent()) {
+            if (other.root.isPresent()) {
+                NearestJoin.join(root.get(), other.root.get(), maxDistance, maxCount, consumer);
+            } else {
+                for (Entry<T, S> entry : entries()) {
+                    consumer.accept(entry, Collections.<Entry<U, V>>emptyList());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a lazily evaluated {@link Iterator} over all entries in the R-tree in
+     * ascending order of distance from the given rectangle. The tree is only
+     * expanded as far as is needed to produce the entries actually pulled from the
+     * iterator so callers may stop at any point (for example once a condition on
+     * the entry value is satisfied) without paying for a full scan.
+     * 
+     * @param r
+     *            rectangle to measure distance from
+     * @return entries in ascending order of distance from r
+     */
+    public Iterator<Entry<T, S>> nearestIterator(final Rectangle r) {
+        return nearestIterator(r, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Returns a lazily evaluated {@link Iterator} over the entries in the R-tree
+     * strictly less than <code>maxDistance</code> from the given rectangle in
+     * ascending order of distance from the rectangle.
+     * 
+     * @param r
+     *            rectangle to measure distance from
+     * @param maxDistance
+     *            entries returned must be within this distance from rectangle r
+     * @return entries in ascending order of distance from r
+     */
+    public Iterator<Entry<T, S>> nearestIterator(final Rectangle r, final double maxDistance) {
+        if (root.isPresent())
+            return Nearest.iterator(root.get(), r, maxDistance);
+        else
+            return Collections.emptyIterator();
+    }
+
+    /**
+     * Returns a lazily evaluated {@link Iterator} over all entries in the R-tree in
+     * ascending order of distance from the given point.
+     * 
+     * @param p
+     *            point to measure distance from
+     * @return entries in ascending order of distance from p
+     */
+    public Iterator<Entry<T, S>> nearestIterator(final Point p) {
+        return nearestIterator(p.mbr());
+    }
+
+    /**
+     * Performs a spatial intersection join of this R-tree with another. Both trees
+     * are traversed together depth-first, descending only into pairs of nodes
+     * whose minimum bounding rectangles intersect. Every pair of entries whose
+     * minimum bounding rectangles intersect and whose geometries satisfy
+     * <code>condition</code> is passed to <code>consumer</code>.
+     * 
+     * @param <U>
+     *            value type of the other R-tree
+     * @param <V>
+     *            geometry type of the other R-tree
+     * @param other
+     *            R-tree to join with
+     * @param condition
+     *            refines candidate pairs whose minimum bounding rectangles
+     *            intersect (for example an exact geometry intersection test)
+     * @param consumer
+     *            receives each matching pair of entries, the entry from this tree
+     *            first
+     */
+    public <U, V extends Geometry> void join(RTree<U, V> other,
+            BiPredicate<? super S, ? super V> condition,
+            BiConsumer<? super Entry<T, S>, ? super Entry<U, V>> consumer) {
+        if (root.isPresent() && other.root.isPresent())
+            Join.join(root.get(), other.root.get(), Join.INTERSECTS,
+                    (a, b) -> condition.test(a.geometry(), b.geometry()), consumer);
+    }
+
+    /**
+     * Performs a distance join of this R-tree with another. Every pair of entries
+     * (one from each tree) where the distance between the geometries of the
+     * entries is strictly less than <code>maxDistance</code> is passed to
+     * <code>consumer</code>. Both trees are traversed together, descending only
+     * into pairs of nodes that are closer than <code>maxDistance</code>.
+     * 
+     * <p>
+     * The distance between geometries is exact for points, rectangles, circles,
+     * lines and polygons. For other geometries the larger of the distances from
+     * each geometry to the minimum bounding rectangle of the other is used.
+     * </p>
+     * 
+     * @param <U>
+     *            value type of the other R-tree
+     * @param <V>
+     *            geometry type of the other R-tree
+     * @param other
+     *            R-tree to join with
+     * @param maxDistance
+     *            strict max distance between the entries of a pair
+     * @param consumer
+     *            receives each matching pair of entries, the entry from this tree
+     *            first
+     */
+    public <U, V extends Geometry> void withinDistanceJoin(RTree<U, V> other, final double maxDistance,
+            BiConsumer<? super Entry<T, S>, ? super Entry<U, V>> consumer) {
+        if (root.isPresent() && other.root.isPresent())
+            Join.join(root.get(), other.root.get(), Join.withinDistance(maxDistance),
+                    (a, b) -> Join.distance(a.geometry(), b.geometry()) < maxDistance, consumer);
+    }
+
+    /**
+     * Performs a distance join of this R-tree with itself. Each unordered pair of
+     * distinct entries where the distance between their geometries (as for
+     * {@link #withinDistanceJoin(RTree, double, BiConsumer)}) is strictly less
+     * than <code>maxDistance</code> is passed to <code>consumer</code> exactly
+     * once.
+     * 
+     * @param maxDistance
+     *            strict max distance between the entries of a pair
+     * @param consumer
+     *            receives each matching pair of entries
+     */
+    public void withinDistanceSelfJoin(final double maxDistance,
+            BiConsumer<? super Entry<T, S>, ? super Entry<T, S>> consumer) {
+        if (root.isPresent())
+            Join.selfJoin(root.get(), Join.withinDistance(maxDistance),
+                    (a, b) -> Join.distance(a.geometry(), b.geometry()) < maxDistance, consumer);
+    }
+
+    /**
+     * Returns the entries in the R-tree that would have the given point among their
+     * k nearest neighbours, that is the entries for which fewer than k other
+     * entries in the R-tree are strictly closer than <code>p</code> (using the
+     * distance to the entry's minimum bounding rectangle as for
+     * {@link #nearest(Rectangle, double, int)}). Subtrees are pruned when they or a
+     * sibling hold enough entries that are all closer to them than <code>p</code>,
+     * so only the remaining candidates need a bounded nearest neighbour check.
+     * 
+     * @param p
+     *            the query point
+     * @param k
+     *            number of nearest neighbours considered
+     * @return the entries that have p among their k nearest neighbours
+     */
+    public Iterable<Entry<T, S>> reverseNearest(final Point p, int k) {
+        return reverseNearest(p.mbr(), k);
+    }
+
+    /**
+     * Returns the entries in the R-tree that would have the given rectangle (for
+     * example a 3D point {@link Box}) among their k nearest neighbours. See
+     * {@link #reverseNearest(Point, int)}.
+     * 
+     * @param r
+     *            the query rectangle
+     * @param k
+     *            number of nearest neighbours considered
+     * @return the entries that have r among their k nearest neighbours
+     */
+    public Iterable<Entry<T, S>> reverseNearest(final Rectangle r, int k) {
+        if (root.isPresent())
+            return ReverseNearest.reverseNearest(root.get(), r, k);
+        else
+            return Collections.emptyList();
+    }
+
     /**
      * Returns all entries in the tree as an {@link Iterable} sequence.
      * 
      * @return all entries in the R-tree
      */
     public Iterable<Entry<T, S>> entries() {
-        return search(ALWAYS_TRUE);
+        return search(ALWAYS_TRUE, ALWAYS_TRUE);
+    }
+
+    /**
+     * Returns all entries in the tree as a {@link Stream}. Call
+     * {@link Stream#parallel()} on the result to visit subtrees concurrently.
+     * 
+     * @return all entries in the R-tree
+     */
+    public Stream<Entry<T, S>> entriesStream() {
+        return searchStream(ALWAYS_TRUE);
     }
 
     /**
@@ -0,0 +1,90 @@
+package com.github.davidmoten.rtree2;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import com.github.davidmoten.guavamini.Preconditions;
+import com.github.davidmoten.rtree2.geometry.Geometry;
+import com.github.davidmoten.rtree2.geometry.Rectangle;
+import com.github.davidmoten.rtree2.geometry.internal.GeometryUtil;
+
+/**
+ * Reverse k-nearest-neighbour search: finds the entries that would have a query
+ * rectangle among their k nearest neighbours (amongst the other entries of the
+ * tree). A node is pruned when it, or one of its siblings, holds enough entries
+ * that are all closer to every point of the node than the query is (compared
+ * via the maximum distance between the two node rectangles). Surviving entries
+ * are refined with a best-first nearest neighbour search bounded by their
+ * distance to the query.
+ */
+final class ReverseNearest {
+
+    private ReverseNearest() {
+        // prevent instantiation
+    }
+
+    static <T, S extends Geometry> List<Entry<T, S>> reverseNearest(Node<T, S> root, Rectangle q,
+            int k) {
+        Preconditions.checkArgument(k > 0, "k must be > 0");
+        List<Entry<T, S>> list = new ArrayList<Entry<T, S>>();
+        search(root, root, q, k, list);
+        return list;
+    }
+
+    private static <T, S extends Geometry> void search(Node<T, S> root, Node<T, S> node,
+            Rectangle q, int k, List<Entry<T, S>> list) {
+        if (node instanceof NonLeaf) {
+            NonLeaf<T, S> n = (NonLeaf<T, S>) node;
+            for (int i = 0; i < n.count(); i++) {
+                Node<T, S> child = n.child(i);
+                if (!pruned(n, i, q, k)) {
+                    search(root, child, q, k, list);
+                }
+            }
+        } else {
+            Leaf<T, S> leaf = (Leaf<T, S>) node;
+            for (int i = 0; i < leaf.count(); i++) {
+                Entry<T, S> entry = leaf.entry(i);
+                if (isReverseNearest(root, entry, q, k)) {
+                    list.add(entry);
+                }
+            }
+        }
+    }
+
+    private static <T, S extends Geometry> boolean pruned(NonLeaf<T, S> parent, int index,
+            Rectangle q, int k) {
+        Rectangle r = parent.child(index).geometry().mbr();
+        double d = q.distance(r);
+        for (int j = 0; j < parent.count(); j++) {
+            Node<T, S> other = parent.child(j);
+            // a node's own entries include the candidate itself
+            int required = j == index ? k + 1 : k;
+            if (other.size() >= required
+                    && GeometryUtil.maxDistance(r, other.geometry().mbr()) < d) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <T, S extends Geometry> boolean isReverseNearest(Node<T, S> root,
+            Entry<T, S> entry, Rectangle q, int k) {
+        Rectangle r = entry.geometry().mbr();
+        double d = q.distance(r);
+        // count the other entries strictly closer to the entry than q
+        Iterator<Entry<T, S>> it = Nearest.iterator(root, r, d);
+        int count = 0;
+        while (it.hasNext()) {
+            if (it.next() != entry) {
+                count++;
+                if (count == k) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.github.davidmoten.rtree2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import com.github.davidmoten.guavamini.Preconditions;
+import com.github.davidmoten.rtree2.geometry.Geometry;
+import com.github.davidmoten.rtree2.geometry.Rectangle;
+import com.github.davidmoten.rtree2.geometry.internal.GeometryUtil;
+
+/**
+ * Uniform random sampling (without replacement) of the entries intersecting a
+ * rectangle. The matches are ranked without being enumerated: the matching
+ * entries of leaves on the boundary of the query come first, followed by the
+ * entries of each node lying wholly inside the query. A sampled rank within
+ * such a node is resolved to an entry by descending through the cached subtree
+ * sizes ({@link Node#size()}), so only the boundary of the query and one path
+ * per sampled entry are visited.
+ */
+final class Sample {
+
+    private Sample() {
+        // prevent instantiation
+    }
+
+    static <T, S extends Geometry> List<Entry<T, S>> sample(Node<T, S> root, Rectangle r, int n,
+            Random random) {
+        Preconditions.checkArgument(n >= 0, "n must be >= 0");
+        List<Entry<T, S>> boundary = new ArrayList<Entry<T, S>>();
+        List<Node<T, S>> covered = new ArrayList<Node<T, S>>();
+        collect(root, r, boundary, covered);
+
+        // ends[i] is the rank after the last entry of covered node i
+        int[] ends = new int[covered.size()];
+        int total = boundary.size();
+        for (int i = 0; i < covered.size(); i++) {
+            total += covered.get(i).size();
+            ends[i] = total;
+        }
+
+        int[] ranks = ranks(total, Math.min(n, total), random);
+        List<Entry<T, S>> list = new ArrayList<Entry<T, S>>(ranks.length);
+        for (int rank : ranks) {
+            if (rank < boundary.size()) {
+                list.add(boundary.get(rank));
+            } else {
+                int i = Arrays.binarySearch(ends, rank);
+                // the node containing the rank is the first whose end exceeds it
+                i = i >= 0 ? i + 1 : -i - 1;
+                Node<T, S> node = covered.get(i);
+                list.add(entry(node, rank - (ends[i] - node.size())));
+            }
+        }
+        return list;
+    }
+
+    private static <T, S extends Geometry> void collect(Node<T, S> node, Rectangle r,
+            List<Entry<T, S>> boundary, List<Node<T, S>> covered) {
+        Rectangle mbr = node.geometry().mbr();
+        if (!mbr.intersects(r)) {
+            return;
+        } else if (GeometryUtil.contains(r, mbr)) {
+            covered.add(node);
+        } else if (node instanceof NonLeaf) {
+            NonLeaf<T, S> n = (NonLeaf<T, S>) node;
+            for (int i = 0; i < n.count(); i++) {
+                collect(n.child(i), r, boundary, covered);
+            }
+        } else {
+            Leaf<T, S> leaf = (Leaf<T, S>) node;
+            for (int i = 0; i < leaf.count(); i++) {
+                Entry<T, S> entry = leaf.entry(i);
+                if (entry.geometry().intersects(r)) {
+                    boundary.add(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the entry with the given 0-based rank in the subtree rooted at node.
+     */
+    private static <T, S extends Geometry> Entry<T, S> entry(Node<T, S> node, int rank) {
+        while (node instanceof NonLeaf) {
+            NonLeaf<T, S> n = (NonLeaf<T, S>) node;
+            int i = 0;
+            Node<T, S> child = n.child(i);
+            while (rank >= child.size()) {
+                rank -= child.size();
+                child = n.child(++i);
+            }
+            node = child;
+        }
+        return ((Leaf<T, S>) node).entry(rank);
+    }
+
+    /**
+     * Returns k distinct ranks chosen uniformly from [0, total) in ascending
+     * order, using Floyd's algorithm.
+     */
+    private static int[] ranks(int total, int k, Random random) {
+        Set<Integer> set = new HashSet<Integer>(k * 2);
+        for (int j = total - k; j < total; j++) {
+            int t = random.nextInt(j + 1);
+            if (!set.add(t)) {
+                set.add(j);
+            }
+        }
+        int[] ranks = new int[k];
+        int i = 0;
+        for (int rank : set) {
+            ranks[i++] = rank;
+        }
+        Arrays.sort(ranks);
+        return ranks;
+    }
+
+}
@@ -1,12 +1,20 @@
 package com.github.davidmoten.rtree2;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
+import com.github.davidmoten.guavamini.Preconditions;
 import com.github.davidmoten.rtree2.geometry.Geometry;
+import com.github.davidmoten.rtree2.geometry.Rectangle;
 
 final class Search {
 
@@ -16,22 +24,175 @@ final class Search {
 
     static <T, S extends Geometry> Iterable<Entry<T, S>> search(Node<T, S> node,
             Predicate<? super Geometry> condition) {
-        return new SearchIterable<T, S>(node, condition);
+        return search(node, condition, NEVER);
+    }
+
+    /**
+     * Returns the entries satisfying <code>condition</code>. When
+     * <code>covered</code> is true for the geometry of a node then
+     * <code>condition</code> is assumed to be true for every descendant of that
+     * node and the subtree is returned without further tests (for example when a
+     * node lies wholly inside a search rectangle).
+     * 
+     * @param node
+     *            root of the tree to search
+     * @param condition
+     *            condition that matching node mbrs and entry geometries satisfy
+     * @param covered
+     *            if true for a node then condition holds for all of its descendants
+     * @param <T>
+     *            value type
+     * @param <S>
+     *            geometry type
+     * @return matching entries
+     */
+    static <T, S extends Geometry> Iterable<Entry<T, S>> search(Node<T, S> node,
+            Predicate<? super Geometry> condition, Predicate<? super Geometry> covered) {
+        return new SearchIterable<T, S>(node, condition, covered);
+    }
+
+    private static final Predicate<Geometry> NEVER = g -> false;
+
+    /**
+     * Visits the entries satisfying <code>condition</code> depth-first by
+     * recursion, subject to the same rules for <code>covered</code> as
+     * {@link #search(Node, Predicate, Predicate)}.
+     * 
+     * @param node
+     *            root of the subtree to visit
+     * @param condition
+     *            condition that matching node mbrs and entry geometries satisfy
+     * @param covered
+     *            if true for a node then condition holds for all of its descendants
+     * @param visitor
+     *            receives matching nodes and entries
+     * @param <T>
+     *            value type
+     * @param <S>
+     *            geometry type
+     * @return false if and only if the visitor stopped the traversal
+     */
+    static <T, S extends Geometry> boolean visit(Node<T, S> node,
+            Predicate<? super Geometry> condition, Predicate<? super Geometry> covered,
+            SearchVisitor<T, S> visitor) {
+        Geometry g = node.geometry();
+        if (!condition.test(g)) {
+            return true;
+        }
+        return visitNode(node, condition, covered.test(g) ? null : covered, visitor);
+    }
+
+    // covered is null when the node is known to be covered
+    private static <T, S extends Geometry> boolean visitNode(Node<T, S> node,
+            Predicate<? super Geometry> condition, Predicate<? super Geometry> covered,
+            SearchVisitor<T, S> visitor) {
+        SearchVisitor.Action action = visitor.visitNode(node);
+        if (action == SearchVisitor.Action.STOP) {
+            return false;
+        } else if (action == SearchVisitor.Action.SKIP_SUBTREE) {
+            return true;
+        } else if (node instanceof NonLeaf) {
+            NonLeaf<T, S> n = (NonLeaf<T, S>) node;
+            for (int i = 0; i < n.count(); i++) {
+                Node<T, S> child = n.child(i);
+                if (covered == null) {
+                    if (!visitNode(child, condition, null, visitor)) {
+                        return false;
+                    }
+                } else if (condition.test(child.geometry())) {
+                    Predicate<? super Geometry> c = covered.test(child.geometry()) ? null : covered;
+                    if (!visitNode(child, condition, c, visitor)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        } else {
+            Leaf<T, S> leaf = (Leaf<T, S>) node;
+            for (int i = 0; i < leaf.count(); i++) {
+                Entry<T, S> entry = leaf.entry(i);
+                if (covered == null || condition.test(entry.geometry())) {
+                    SearchVisitor.Action a = visitor.visitEntry(entry);
+                    if (a == SearchVisitor.Action.STOP) {
+                        return false;
+                    } else if (a == SearchVisitor.Action.SKIP_SUBTREE) {
+                        return true;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Returns up to <code>pageSize</code> entries satisfying
+     * <code>condition</code> (subject to the same rules for <code>covered</code>
+     * as {@link #search(Node, Predicate, Predicate)}) starting from the position
+     * given by <code>path</code>, and the cursor for the following page.
+     * 
+     * @param node
+     *            root of the tree to search
+     * @param condition
+     *            condition that matching node mbrs and entry geometries satisfy
+     * @param covered
+     *            if true for a node then condition holds for all of its descendants
+     * @param treeId
+     *            identifies the tree for the returned cursor
+     * @param query
+     *            the rectangle searched, recorded in the returned cursor
+     * @param path
+     *            position to start from (from a previous cursor) or null to start
+     *            at the beginning
+     * @param pageSize
+     *            maximum number of entries to return
+     * @param <T>
+     *            value type
+     * @param <S>
+     *            geometry type
+     * @return page of matching entries
+     */
+    static <T, S extends Geometry> SearchPage<T, S> page(Node<T, S> node,
+            Predicate<? super Geometry> condition, Predicate<? super Geometry> covered,
+            long treeId, Rectangle query, int[] path, int pageSize) {
+        Preconditions.checkArgument(pageSize > 0, "pageSize must be > 0");
+        SearchIterator<T, S> it = path == null ? new SearchIterator<T, S>(node, condition, covered)
+                : new SearchIterator<T, S>(node, condition, covered, path);
+        List<Entry<T, S>> list = new ArrayList<Entry<T, S>>(pageSize);
+        while (list.size() < pageSize && it.hasNext()) {
+            list.add(it.next());
+        }
+        Optional<SearchCursor> cursor;
+        if (it.hasNext()) {
+            cursor = Optional.of(new SearchCursor(treeId, query, it.path()));
+        } else {
+            cursor = Optional.empty();
+        }
+        return new SearchPage<T, S>(list, cursor);
+    }
+
+    static <T, S extends Geometry> Spliterator<Entry<T, S>> spliterator(Node<T, S> node,
+            Predicate<? super Geometry> condition, long estimatedSize) {
+        Deque<Node<T, S>> nodes = new ArrayDeque<Node<T, S>>();
+        nodes.add(node);
+        return new SearchSpliterator<T, S>(nodes, condition, estimatedSize);
     }
 
     static final class SearchIterable<T, S extends Geometry> implements Iterable<Entry<T, S>> {
 
         private final Node<T, S> node;
         private final Predicate<? super Geometry> condition;
+        private final Predicate<? super Geometry> covered;
 
-        SearchIterable(Node<T, S> node, Predicate<? super Geometry> condition) {
+        SearchIterable(Node<T, S> node, Predicate<? super Geometry> condition,
+                Predicate<? super Geometry> covered) {
             this.node = node;
             this.condition = condition;
+            this.covered = covered;
         }
 
         @Override
         public Iterator<Entry<T, S>> iterator() {
-            return new SearchIterator<T, S>(node, condition);
+            return new SearchIterator<T, S>(node, condition, covered);
         }
 
     }
@@ -39,13 +200,57 @@ final class Search {
     static final class SearchIterator<T, S extends Geometry> implements Iterator<Entry<T, S>> {
 
         private final Predicate<? super Geometry> condition;
+        private final Predicate<? super Geometry> covered;
         private final Deque<NodePosition<T, S>> stack;
         private Entry<T, S> next;
 
-        SearchIterator(Node<T, S> node, Predicate<? super Geometry> condition) {
+        SearchIterator(Node<T, S> node, Predicate<? super Geometry> condition,
+                Predicate<? super Geometry> covered) {
             this.condition = condition;
+            this.covered = covered;
             this.stack = new LinkedList<NodePosition<T, S>>();
-            stack.push(new NodePosition<T, S>(node, 0));
+            stack.push(new NodePosition<T, S>(node, 0, covered.test(node.geometry())));
+        }
+
+        /**
+         * Creates an iterator positioned at the given path (as returned by
+         * {@link #path()} for the same tree and condition).
+         */
+        SearchIterator(Node<T, S> node, Predicate<? super Geometry> condition,
+                Predicate<? super Geometry> covered, int[] path) {
+            this.condition = condition;
+            this.covered = covered;
+            this.stack = new LinkedList<NodePosition<T, S>>();
+            boolean c = covered.test(node.geometry());
+            for (int i = 0; i < path.length; i++) {
+                boolean last = i == path.length - 1;
+                Preconditions.checkArgument(path[i] < node.count() + (last ? 1 : 0)
+                        && (node instanceof Leaf) == last, "path does not match tree");
+                stack.push(new NodePosition<T, S>(node, path[i], c));
+                if (!last) {
+                    node = ((NonLeaf<T, S>) node).child(path[i]);
+                    c = c || covered.test(node.geometry());
+                }
+            }
+        }
+
+        /**
+         * Returns the position of the next entry to be returned as the index of
+         * the child followed at each level from the root down to the index in the
+         * leaf.
+         */
+        int[] path() {
+            int[] path = new int[stack.size()];
+            int i = path.length - 1;
+            // the stack is iterated from the top (deepest) to the root
+            for (NodePosition<T, S> np : stack) {
+                path[i--] = np.position();
+            }
+            if (next != null) {
+                // next has been loaded already so the leaf position is one past it
+                path[path.length - 1]--;
+            }
+            return path;
         }
 
         @Override
@@ -95,6 +300,10 @@ final class Search {
         private Entry<T, S> searchLeaf(NodePosition<T, S> np) {
             int i = np.position();
             Leaf<T, S> leaf = (Leaf<T, S>) np.node();
+            if (np.covered()) {
+                np.setPosition(i + 1);
+                return leaf.entry(i);
+            }
             do {
                 Entry<T, S> entry = leaf.entry(i);
                 if (condition.test(entry.geometry())) {
@@ -109,8 +318,11 @@ final class Search {
 
         private void searchNonLeaf(NodePosition<T, S> np) {
             Node<T, S> child = ((NonLeaf<T, S>) np.node()).child(np.position());
-            if (condition.test(child.geometry())) {
-                stack.push(new NodePosition<T, S>(child, 0));
+            if (np.covered()) {
+                // whole subtree matches so skip all further tests
+                stack.push(new NodePosition<T, S>(child, 0, true));
+            } else if (condition.test(child.geometry())) {
+                stack.push(new NodePosition<T, S>(child, 0, covered.test(child.geometry())));
             } else {
                 np.setPosition(np.position() + 1);
             }
@@ -126,4 +338,95 @@ final class Search {
 
     }
 
+    /**
+     * A {@link Spliterator} over the entries satisfying a condition that splits by
+     * handing off whole subtrees, so that a parallel stream can search disjoint
+     * parts of the tree on different threads.
+     */
+    static final class SearchSpliterator<T, S extends Geometry> implements Spliterator<Entry<T, S>> {
+
+        private final Predicate<? super Geometry> condition;
+        // nodes still to be searched, head is next in encounter order
+        private final Deque<Node<T, S>> nodes;
+        private Leaf<T, S> leaf;
+        private int index;
+        private long estimatedSize;
+
+        SearchSpliterator(Deque<Node<T, S>> nodes, Predicate<? super Geometry> condition,
+                long estimatedSize) {
+            this.nodes = nodes;
+            this.condition = condition;
+            this.estimatedSize = estimatedSize;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Entry<T, S>> action) {
+            while (true) {
+                if (leaf != null) {
+                    while (index < leaf.count()) {
+                        Entry<T, S> entry = leaf.entry(index);
+                        index++;
+                        if (condition.test(entry.geometry())) {
+                            action.accept(entry);
+                            return true;
+                        }
+                    }
+                    leaf = null;
+                }
+                Node<T, S> node = nodes.pollFirst();
+                if (node == null) {
+                    return false;
+                } else if (node instanceof Leaf) {
+                    leaf = (Leaf<T, S>) node;
+                    index = 0;
+                } else {
+                    expand((NonLeaf<T, S>) node);
+                }
+            }
+        }
+
+        private void expand(NonLeaf<T, S> node) {
+            // add children to the head in reverse so that child 0 is next
+            for (int i = node.count() - 1; i >= 0; i--) {
+                Node<T, S> child = node.child(i);
+                if (condition.test(child.geometry())) {
+                    nodes.addFirst(child);
+                }
+            }
+        }
+
+        @Override
+        public Spliterator<Entry<T, S>> trySplit() {
+            if (leaf != null) {
+                // the partially consumed leaf must stay ahead of the pending
+                // nodes in encounter order so don't split
+                return null;
+            }
+            while (nodes.size() == 1 && nodes.peekFirst() instanceof NonLeaf) {
+                expand((NonLeaf<T, S>) nodes.pollFirst());
+            }
+            int n = nodes.size() / 2;
+            if (n == 0) {
+                return null;
+            }
+            Deque<Node<T, S>> prefix = new ArrayDeque<Node<T, S>>(n);
+            for (int i = 0; i < n; i++) {
+                prefix.addLast(nodes.pollFirst());
+            }
+            estimatedSize = estimatedSize / 2;
+            return new SearchSpliterator<T, S>(prefix, condition, estimatedSize);
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimatedSize;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL | IMMUTABLE;
+        }
+
+    }
+
 }
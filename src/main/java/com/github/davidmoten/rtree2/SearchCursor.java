@@ -0,0 +1,147 @@
+package com.github.davidmoten.rtree2;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import com.github.davidmoten.guavamini.Preconditions;
+import com.github.davidmoten.rtree2.geometry.Rectangle;
+
+/**
+ * The position of a paged search (see
+ * {@link RTree#searchPage(com.github.davidmoten.rtree2.geometry.Rectangle, SearchCursor, int)})
+ * in the tree it was created from: the index of the child followed at each
+ * level from the root down to the next entry of a leaf, together with an
+ * identifier of the {@link RTree} instance and the ordinates of the query
+ * rectangle. Resuming from a cursor walks straight down that path, so earlier
+ * results are not searched again. A cursor can be sent to a client as a string
+ * with {@link #token()} and read back with {@link #parse(String)}. It is only
+ * accepted for the same rectangle on the same {@link RTree} instance in the
+ * same JVM.
+ */
+public final class SearchCursor implements Serializable {
+
+    private static final long serialVersionUID = 6185305843436452532L;
+
+    private final long treeId;
+    private final double[] query;
+    private final int[] path;
+
+    SearchCursor(long treeId, Rectangle query, int[] path) {
+        this(treeId, ordinates(query), path);
+    }
+
+    private SearchCursor(long treeId, double[] query, int[] path) {
+        this.treeId = treeId;
+        this.query = query;
+        this.path = path;
+    }
+
+    private static double[] ordinates(Rectangle r) {
+        double[] ordinates = new double[2 * r.dimensions()];
+        for (int i = 0; i < r.dimensions(); i++) {
+            ordinates[2 * i] = r.lower(i);
+            ordinates[2 * i + 1] = r.upper(i);
+        }
+        return ordinates;
+    }
+
+    /**
+     * Throws if this cursor was not created by a paged search of
+     * <code>query</code> on the tree identified by <code>treeId</code>.
+     * 
+     * @param treeId
+     *            identifies the tree being searched
+     * @param query
+     *            rectangle being searched
+     * @throws IllegalArgumentException
+     *             if the cursor came from another tree or another rectangle
+     */
+    void checkFor(long treeId, Rectangle query) {
+        Preconditions.checkArgument(this.treeId == treeId, "cursor was not created by this tree");
+        Preconditions.checkArgument(Arrays.equals(this.query, ordinates(query)),
+                "cursor was not created for this rectangle");
+    }
+
+    int[] path() {
+        return path.clone();
+    }
+
+    /**
+     * Returns this cursor as a compact string that can be read back with
+     * {@link #parse(String)}.
+     * 
+     * @return token representing this cursor
+     */
+    public String token() {
+        StringBuilder s = new StringBuilder();
+        s.append(Long.toString(treeId, 36));
+        s.append('.');
+        for (int i = 0; i < query.length; i++) {
+            if (i > 0) {
+                s.append('_');
+            }
+            s.append(Long.toString(Double.doubleToLongBits(query[i]), 36));
+        }
+        for (int p : path) {
+            s.append('.');
+            s.append(Integer.toString(p, 36));
+        }
+        return s.toString();
+    }
+
+    /**
+     * Returns the cursor represented by a string previously returned by
+     * {@link #token()}.
+     * 
+     * @param token
+     *            the string form of a cursor
+     * @return cursor
+     * @throws IllegalArgumentException
+     *             if token is not a valid cursor
+     */
+    public static SearchCursor parse(String token) {
+        Preconditions.checkNotNull(token);
+        String[] items = token.split("\\.", -1);
+        Preconditions.checkArgument(items.length > 2, "invalid cursor: " + token);
+        try {
+            long treeId = Long.parseLong(items[0], 36);
+            String[] ordinates = items[1].split("_", -1);
+            Preconditions.checkArgument(ordinates.length >= 4 && ordinates.length % 2 == 0,
+                    "invalid cursor: " + token);
+            double[] query = new double[ordinates.length];
+            for (int i = 0; i < query.length; i++) {
+                query[i] = Double.longBitsToDouble(Long.parseLong(ordinates[i], 36));
+            }
+            int[] path = new int[items.length - 2];
+            for (int i = 0; i < path.length; i++) {
+                path[i] = Integer.parseInt(items[i + 2], 36);
+                Preconditions.checkArgument(path[i] >= 0, "invalid cursor: " + token);
+            }
+            return new SearchCursor(treeId, query, path);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid cursor: " + token, e);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Long.hashCode(treeId) + Arrays.hashCode(query)) + Arrays.hashCode(path);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof SearchCursor) {
+            SearchCursor other = (SearchCursor) obj;
+            return treeId == other.treeId && Arrays.equals(query, other.query)
+                    && Arrays.equals(path, other.path);
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SearchCursor [" + token() + "]";
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.github.davidmoten.rtree2;
+
+import java.util.List;
+import java.util.Optional;
+
+import com.github.davidmoten.rtree2.geometry.Geometry;
+
+/**
+ * A page of search results and the cursor to resume the search from if there
+ * are more.
+ *
+ * @param <T>
+ *            value type
+ * @param <S>
+ *            geometry type
+ */
+public final class SearchPage<T, S extends Geometry> {
+
+    private final List<Entry<T, S>> entries;
+    private final Optional<SearchCursor> cursor;
+
+    SearchPage(List<Entry<T, S>> entries, Optional<SearchCursor> cursor) {
+        this.entries = entries;
+        this.cursor = cursor;
+    }
+
+    /**
+     * Returns the entries of this page in search order.
+     * 
+     * @return entries of the page
+     */
+    public List<Entry<T, S>> entries() {
+        return entries;
+    }
+
+    /**
+     * Returns the cursor to obtain the next page with, or empty if this is the
+     * last page.
+     * 
+     * @return cursor for the next page
+     */
+    public Optional<SearchCursor> cursor() {
+        return cursor;
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.github.davidmoten.rtree2;
+
+import com.github.davidmoten.rtree2.geometry.Geometry;
+
+/**
+ * Callback for a push-based search of an {@link RTree} (see
+ * {@link RTree#visit(com.github.davidmoten.rtree2.geometry.Rectangle, SearchVisitor)}).
+ * The tree is traversed depth-first without allocating an iterator and the
+ * visitor steers the traversal by the {@link Action} it returns.
+ *
+ * @param <T>
+ *            value type
+ * @param <S>
+ *            geometry type
+ */
+public interface SearchVisitor<T, S extends Geometry> {
+
+    enum Action {
+        /**
+         * Continue the traversal.
+         */
+        CONTINUE,
+        /**
+         * Don't descend into the node just visited, or for an entry don't visit
+         * the remaining entries of its leaf.
+         */
+        SKIP_SUBTREE,
+        /**
+         * Terminate the traversal immediately.
+         */
+        STOP;
+    }
+
+    /**
+     * Called for each node matching the search before its children are visited.
+     * The default implementation returns {@link Action#CONTINUE}.
+     *
+     * @param node
+     *            node matching the search
+     * @return action controlling the traversal
+     */
+    default Action visitNode(Node<T, S> node) {
+        return Action.CONTINUE;
+    }
+
+    /**
+     * Called for each entry matching the search.
+     *
+     * @param entry
+     *            entry matching the search
+     * @return action controlling the traversal
+     */
+    Action visitEntry(Entry<T, S> entry);
+
+}
@@ -42,43 +42,41 @@ public final class SplitterRStar implements Splitter {
         List<ListPair<T>> pairs = null;
         double lowestMarginSum = Double.POSITIVE_INFINITY;
         List<T> list = null;
-        for (SortType sortType : SortType.values()) {
-            if (list == null) {
-                list = new ArrayList<T>(items);
-            }
-            Collections.sort(list, comparator(sortType));
-            List<ListPair<T>> p = getPairs(minSize, list);
-            double marginSum = marginValueSum(p);
-            if (marginSum <= lowestMarginSum) {
-                lowestMarginSum = marginSum;
-                pairs = p;
-                // because p uses subViews of list we need to create a new one
-                // for further comparisons
-                list = null;
+        int dimensions = items.get(0).geometry().mbr().dimensions();
+        for (int dimension = 0; dimension < dimensions; dimension++) {
+            for (boolean upper : new boolean[] { false, true }) {
+                if (list == null) {
+                    list = new ArrayList<T>(items);
+                }
+                Collections.sort(list, comparator(dimension, upper));
+                List<ListPair<T>> p = getPairs(minSize, list);
+                double marginSum = marginValueSum(p);
+                if (marginSum <= lowestMarginSum) {
+                    lowestMarginSum = marginSum;
+                    pairs = p;
+                    // because p uses subViews of list we need to create a new one
+                    // for further comparisons
+                    list = null;
+                }
             }
         }
         return Collections.min(pairs, comparator);
     }
 
-    private static Comparator<HasGeometry> comparator(SortType sortType) {
-        switch (sortType) {
-        case X_LOWER:
-            return INCREASING_X_LOWER;
-        case X_UPPER:
-            return INCREASING_X_UPPER;
-        case Y_LOWER:
-            return INCREASING_Y_LOWER;
-        case Y_UPPER:
-            return INCREASING_Y_UPPER;
-        default:
-            throw new IllegalArgumentException("unknown SortType " + sortType);
+    private static Comparator<HasGeometry> comparator(int dimension, boolean upper) {
+        if (dimension == 0) {
+            return upper ? INCREASING_X_UPPER : INCREASING_X_LOWER;
+        } else if (dimension == 1) {
+            return upper ? INCREASING_Y_UPPER : INCREASING_Y_LOWER;
+        } else if (upper) {
+            return (n1, n2) -> Double.compare(n1.geometry().mbr().upper(dimension),
+                    n2.geometry().mbr().upper(dimension));
+        } else {
+            return (n1, n2) -> Double.compare(n1.geometry().mbr().lower(dimension),
+                    n2.geometry().mbr().lower(dimension));
         }
     }
 
-    private enum SortType {
-        X_LOWER, X_UPPER, Y_LOWER, Y_UPPER;
-    }
-
     private static <T extends HasGeometry> double marginValueSum(List<ListPair<T>> list) {
         double sum = 0;
         for (ListPair<T> p : list)
@@ -0,0 +1,120 @@
+package com.github.davidmoten.rtree2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.ToDoubleFunction;
+
+import com.github.davidmoten.guavamini.Preconditions;
+import com.github.davidmoten.rtree2.Nearest.Candidate;
+import com.github.davidmoten.rtree2.geometry.Geometry;
+import com.github.davidmoten.rtree2.geometry.Rectangle;
+import com.github.davidmoten.rtree2.internal.Util;
+
+/**
+ * Finds the k highest scoring entries within a region. When summaries under
+ * {@link Monoid#max(ToDoubleFunction)} of the score are maintained on the nodes
+ * (see {@link Context#monoids()}) each node bounds the scores below it by its
+ * summary and nodes are expanded best-first by that bound, so the search stops
+ * as soon as k entries have been found that score at least as well as every
+ * node not yet expanded. Otherwise every intersecting entry is scored and the
+ * best k are kept in a min-heap of size k.
+ */
+final class TopK {
+
+    private TopK() {
+        // prevent instantiation
+    }
+
+    static <T, S extends Geometry> List<Entry<T, S>> topK(Node<T, S> node, Rectangle r,
+            ToDoubleFunction<? super T> score, int k) {
+        Preconditions.checkArgument(k > 0, "k must be > 0");
+        Monoid<T, Double> max = Monoid.max(score);
+        int index = node.context().indexOf(max);
+        if (index == -1) {
+            return scan(node, r, score, k);
+        }
+        // candidates are ordered by ascending negated score so the best come first
+        PriorityQueue<Candidate<T, S>> queue = new PriorityQueue<Candidate<T, S>>();
+        List<Entry<T, S>> list = new ArrayList<Entry<T, S>>(k);
+        long sequence = 0;
+        if (node.geometry().mbr().intersects(r)) {
+            queue.add(new Candidate<T, S>(node, null, -Util.summary(node, max, index),
+                    sequence++));
+        }
+        while (list.size() < k && !queue.isEmpty()) {
+            Candidate<T, S> c = queue.poll();
+            if (c.entry != null) {
+                list.add(c.entry);
+            } else if (c.node instanceof NonLeaf) {
+                NonLeaf<T, S> n = (NonLeaf<T, S>) c.node;
+                for (int i = 0; i < n.count(); i++) {
+                    Node<T, S> child = n.child(i);
+                    if (child.geometry().mbr().intersects(r)) {
+                        queue.add(new Candidate<T, S>(child, null,
+                                -Util.summary(child, max, index), sequence++));
+                    }
+                }
+            } else {
+                Leaf<T, S> leaf = (Leaf<T, S>) c.node;
+                for (int i = 0; i < leaf.count(); i++) {
+                    Entry<T, S> entry = leaf.entry(i);
+                    if (entry.geometry().intersects(r)) {
+                        queue.add(new Candidate<T, S>(null, entry,
+                                -score.applyAsDouble(entry.value()), sequence++));
+                    }
+                }
+            }
+        }
+        return list;
+    }
+
+    private static <T, S extends Geometry> List<Entry<T, S>> scan(Node<T, S> node, Rectangle r,
+            ToDoubleFunction<? super T> score, int k) {
+        // the head of the heap is the worst of the best k so far
+        PriorityQueue<Candidate<T, S>> heap = new PriorityQueue<Candidate<T, S>>();
+        scan(node, r, score, k, heap, 0);
+        List<Candidate<T, S>> best = new ArrayList<Candidate<T, S>>(heap);
+        best.sort((a, b) -> {
+            int value = Double.compare(b.distance, a.distance);
+            return value != 0 ? value : Long.compare(a.sequence, b.sequence);
+        });
+        List<Entry<T, S>> list = new ArrayList<Entry<T, S>>(best.size());
+        for (Candidate<T, S> c : best) {
+            list.add(c.entry);
+        }
+        return list;
+    }
+
+    // returns the sequence number of the next entry in search order
+    private static <T, S extends Geometry> long scan(Node<T, S> node, Rectangle r,
+            ToDoubleFunction<? super T> score, int k, PriorityQueue<Candidate<T, S>> heap,
+            long sequence) {
+        if (!node.geometry().mbr().intersects(r)) {
+            return sequence;
+        } else if (node instanceof NonLeaf) {
+            NonLeaf<T, S> n = (NonLeaf<T, S>) node;
+            for (int i = 0; i < n.count(); i++) {
+                sequence = scan(n.child(i), r, score, k, heap, sequence);
+            }
+            return sequence;
+        } else {
+            Leaf<T, S> leaf = (Leaf<T, S>) node;
+            for (int i = 0; i < leaf.count(); i++) {
+                Entry<T, S> entry = leaf.entry(i);
+                if (entry.geometry().intersects(r)) {
+                    double s = score.applyAsDouble(entry.value());
+                    if (heap.size() < k) {
+                        heap.add(new Candidate<T, S>(null, entry, s, sequence));
+                    } else if (s > heap.peek().distance) {
+                        heap.poll();
+                        heap.add(new Candidate<T, S>(null, entry, s, sequence));
+                    }
+                    sequence++;
+                }
+            }
+            return sequence;
+        }
+    }
+
+}
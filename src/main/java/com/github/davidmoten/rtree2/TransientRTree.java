@@ -0,0 +1,345 @@
+package com.github.davidmoten.rtree2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import com.github.davidmoten.guavamini.Lists;
+import com.github.davidmoten.rtree2.geometry.Geometry;
+import com.github.davidmoten.rtree2.geometry.ListPair;
+import com.github.davidmoten.rtree2.internal.LeafTransient;
+import com.github.davidmoten.rtree2.internal.NonLeafTransient;
+import com.github.davidmoten.rtree2.internal.Util;
+
+/**
+ * A single-threaded mutable editor of an {@link RTree} obtained from
+ * {@link RTree#asTransient()}. The first modification of a node copies it into
+ * a node owned by this editor (as an {@link RTree} would on every modification)
+ * but later modifications of the same node happen in place, so a sequence of
+ * edits only copies each affected node once. {@link #persistent()} ends the
+ * editing and returns the result as an immutable {@link RTree}; the
+ * {@link RTree} the editor was created from is never modified.
+ *
+ * <p>
+ * Instances are not thread-safe and must not be used after calling
+ * {@link #persistent()}.
+ * </p>
+ *
+ * @param <T>
+ *            the entry value type
+ * @param <S>
+ *            the entry geometry type
+ */
+public final class TransientRTree<T, S extends Geometry> {
+
+    private final Context<T, S> context;
+
+    // identifies the nodes this editor may modify in place, null once
+    // persistent() has been called
+    private Object owner = new Object();
+
+    private Node<T, S> root;
+    private int size;
+
+    // the second half of the last node split by insert
+    private Node<T, S> sibling;
+
+    private int deleted;
+    private final List<Entry<T, S>> orphans = new ArrayList<Entry<T, S>>();
+
+    TransientRTree(Optional<? extends Node<T, S>> root, int size, Context<T, S> context) {
+        this.root = root.orElse(null);
+        this.size = size;
+        this.context = context;
+    }
+
+    /**
+     * Adds the entry to the tree.
+     *
+     * @param entry
+     *            item to add to the R-tree
+     * @return this
+     */
+    @SuppressWarnings("unchecked")
+    public TransientRTree<T, S> add(Entry<? extends T, ? extends S> entry) {
+        checkEditable();
+        insert((Entry<T, S>) entry);
+        size++;
+        return this;
+    }
+
+    /**
+     * Adds an entry comprised of the given value and Geometry to the tree.
+     *
+     * @param value
+     *            value of the {@link Entry} to be added
+     * @param geometry
+     *            geometry of the {@link Entry} to be added
+     * @return this
+     */
+    public TransientRTree<T, S> add(T value, S geometry) {
+        return add(context.factory().createEntry(value, geometry));
+    }
+
+    /**
+     * Adds the entries to the tree.
+     *
+     * @param entries
+     *            entries to add
+     * @return this
+     */
+    public TransientRTree<T, S> add(Iterable<Entry<T, S>> entries) {
+        for (Entry<T, S> entry : entries) {
+            add(entry);
+        }
+        return this;
+    }
+
+    /**
+     * Deletes one or all matching entries depending on the value of
+     * <code>all</code>. The entry must match on both value and geometry to be
+     * deleted.
+     *
+     * @param entry
+     *            the {@link Entry} to be deleted
+     * @param all
+     *            if true deletes all matches otherwise deletes first found
+     * @return this
+     */
+    public TransientRTree<T, S> delete(Entry<? extends T, ? extends S> entry, boolean all) {
+        checkEditable();
+        if (root != null) {
+            root = delete(root, entry, all);
+            size -= deleted + orphans.size();
+            deleted = 0;
+            for (Entry<T, S> e : orphans) {
+                insert(e);
+                size++;
+            }
+            orphans.clear();
+        }
+        return this;
+    }
+
+    /**
+     * Deletes one entry if it exists. The entry must match on both value and
+     * geometry to be deleted.
+     *
+     * @param entry
+     *            the {@link Entry} to be deleted
+     * @return this
+     */
+    public TransientRTree<T, S> delete(Entry<? extends T, ? extends S> entry) {
+        return delete(entry, false);
+    }
+
+    /**
+     * Deletes one entry matching the given value and geometry if it exists.
+     *
+     * @param value
+     *            the value to be matched for deletion
+     * @param geometry
+     *            the geometry to be matched for deletion
+     * @return this
+     */
+    public TransientRTree<T, S> delete(T value, S geometry) {
+        return delete(context.factory().createEntry(value, geometry), false);
+    }
+
+    /**
+     * Deletes the given entries, one matching occurence per entry.
+     *
+     * @param entries
+     *            entries to delete
+     * @return this
+     */
+    public TransientRTree<T, S> delete(Iterable<Entry<T, S>> entries) {
+        for (Entry<T, S> entry : entries) {
+            delete(entry, false);
+        }
+        return this;
+    }
+
+    /**
+     * Returns the number of entries in the tree.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        checkEditable();
+        return size;
+    }
+
+    /**
+     * Ends editing and returns the edited tree as an immutable {@link RTree}. This
+     * editor can't be used afterwards.
+     *
+     * @return immutable R-tree with the edits applied
+     */
+    public RTree<T, S> persistent() {
+        checkEditable();
+        // the mutable nodes of this editor are replaced so that the result only
+        // has the immutable (final field) nodes of the configured factory and can
+        // be shared between threads like any other RTree
+        Node<T, S> node = root == null ? null : freeze(root);
+        owner = null;
+        return RTree.create(Optional.ofNullable(node), size, context);
+    }
+
+    private void checkEditable() {
+        if (owner == null) {
+            throw new IllegalStateException("transient used after persistent()");
+        }
+    }
+
+    private void insert(Entry<T, S> entry) {
+        if (root == null) {
+            root = new LeafTransient<T, S>(owner, Lists.newArrayList(entry), context);
+        } else {
+            root = insert(root, entry);
+            if (sibling != null) {
+                List<Node<T, S>> children = Lists.newArrayList(root, sibling);
+                root = new NonLeafTransient<T, S>(owner, children, context);
+                sibling = null;
+            }
+        }
+    }
+
+    private Node<T, S> insert(Node<T, S> node, Entry<T, S> entry) {
+        if (node instanceof Leaf) {
+            LeafTransient<T, S> leaf = editable((Leaf<T, S>) node);
+            leaf.addInPlace(entry);
+            if (leaf.count() <= context.maxChildren()) {
+                return leaf;
+            } else {
+                ListPair<Entry<T, S>> pair = context.splitter().split(leaf.entries(),
+                        context.minChildren());
+                sibling = new LeafTransient<T, S>(owner,
+                        new ArrayList<Entry<T, S>>(pair.group2().list()), context);
+                return new LeafTransient<T, S>(owner,
+                        new ArrayList<Entry<T, S>>(pair.group1().list()), context);
+            }
+        } else {
+            NonLeafTransient<T, S> n = editable((NonLeaf<T, S>) node);
+            List<Node<T, S>> children = n.children();
+            Node<T, S> child = context.selector().select(entry.geometry().mbr(), children);
+            int index = Util.indexOf(children, child);
+            children.set(index, insert(child, entry));
+            if (sibling != null) {
+                children.add(sibling);
+                sibling = null;
+            }
+            n.added(entry.geometry().mbr());
+            if (children.size() <= context.maxChildren()) {
+                return n;
+            } else {
+                ListPair<Node<T, S>> pair = context.splitter().split(children,
+                        context.minChildren());
+                sibling = new NonLeafTransient<T, S>(owner,
+                        new ArrayList<Node<T, S>>(pair.group2().list()), context);
+                return new NonLeafTransient<T, S>(owner,
+                        new ArrayList<Node<T, S>>(pair.group1().list()), context);
+            }
+        }
+    }
+
+    /**
+     * Deletes the entry from below the node, returning the node that replaces it
+     * (null if the node should be removed). The number of entries deleted is
+     * added to <code>deleted</code> and entries of leaves that fell below
+     * minChildren are added to <code>orphans</code>.
+     */
+    private Node<T, S> delete(Node<T, S> node, Entry<? extends T, ? extends S> entry,
+            boolean all) {
+        if (node instanceof Leaf) {
+            Leaf<T, S> leaf = (Leaf<T, S>) node;
+            if (!leaf.entries().contains(entry)) {
+                return leaf;
+            }
+            LeafTransient<T, S> lt = editable(leaf);
+            deleted += lt.deleteInPlace(entry, all);
+            if (lt.count() >= context.minChildren()) {
+                return lt;
+            } else {
+                orphans.addAll(lt.entries());
+                return null;
+            }
+        } else {
+            NonLeafTransient<T, S> n = null;
+            List<Node<T, S>> children = ((NonLeaf<T, S>) node).children();
+            for (int i = 0; i < children.size(); i++) {
+                Node<T, S> child = children.get(i);
+                if (entry.geometry().intersects(child.geometry().mbr())) {
+                    int before = deleted;
+                    Node<T, S> child2 = delete(child, entry, all);
+                    if (deleted > before) {
+                        if (n == null) {
+                            n = editable((NonLeaf<T, S>) node);
+                            children = n.children();
+                        }
+                        if (child2 == null) {
+                            children.remove(i);
+                            i--;
+                        } else {
+                            children.set(i, child2);
+                        }
+                        if (!all) {
+                            break;
+                        }
+                    }
+                }
+            }
+            if (n == null) {
+                return node;
+            } else if (children.isEmpty()) {
+                return null;
+            } else {
+                n.refresh();
+                return n;
+            }
+        }
+    }
+
+    private LeafTransient<T, S> editable(Leaf<T, S> leaf) {
+        if (leaf instanceof LeafTransient && ((LeafTransient<T, S>) leaf).isOwnedBy(owner)) {
+            return (LeafTransient<T, S>) leaf;
+        } else {
+            return new LeafTransient<T, S>(owner, new ArrayList<Entry<T, S>>(leaf.entries()),
+                    context);
+        }
+    }
+
+    private NonLeafTransient<T, S> editable(NonLeaf<T, S> node) {
+        if (node instanceof NonLeafTransient
+                && ((NonLeafTransient<T, S>) node).isOwnedBy(owner)) {
+            return (NonLeafTransient<T, S>) node;
+        } else {
+            return new NonLeafTransient<T, S>(owner, new ArrayList<Node<T, S>>(node.children()),
+                    context);
+        }
+    }
+
+    /**
+     * Replaces the nodes owned by this editor with nodes created by the
+     * context's factory.
+     */
+    private Node<T, S> freeze(Node<T, S> node) {
+        if (node instanceof LeafTransient) {
+            LeafTransient<T, S> leaf = (LeafTransient<T, S>) node;
+            if (leaf.isOwnedBy(owner)) {
+                return context.factory().createLeaf(leaf.entries(), context);
+            }
+        } else if (node instanceof NonLeafTransient) {
+            NonLeafTransient<T, S> n = (NonLeafTransient<T, S>) node;
+            if (n.isOwnedBy(owner)) {
+                List<Node<T, S>> children = new ArrayList<Node<T, S>>(n.count());
+                for (int i = 0; i < n.count(); i++) {
+                    children.add(freeze(n.child(i)));
+                }
+                return context.factory().createNonLeaf(children, context);
+            }
+        }
+        return node;
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.github.davidmoten.rtree2.geometry;
+
+/**
+ * An axis-aligned box of 2 or more dimensions (for example a 3D volume, or a 3D
+ * point when the lower and upper bounds are equal). The first two dimensions
+ * are x and y so a box can be used wherever a {@link Rectangle} can and
+ * {@link #area()} and {@link #perimeter()} return its volume and margin (the
+ * sum of its edge lengths). The entries of an R-tree should all have the same
+ * number of dimensions. A query of fewer dimensions (say a 2D
+ * {@link Rectangle}) is unbounded in the dimensions it lacks.
+ */
+public interface Box extends Rectangle {
+
+}
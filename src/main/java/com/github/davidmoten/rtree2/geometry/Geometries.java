@@ -1,12 +1,17 @@
 package com.github.davidmoten.rtree2.geometry;
 
+import java.util.List;
+
 import com.github.davidmoten.guavamini.annotations.VisibleForTesting;
+import com.github.davidmoten.rtree2.geometry.internal.BoxDouble;
+import com.github.davidmoten.rtree2.geometry.internal.BoxFloat;
 import com.github.davidmoten.rtree2.geometry.internal.CircleDouble;
 import com.github.davidmoten.rtree2.geometry.internal.CircleFloat;
 import com.github.davidmoten.rtree2.geometry.internal.LineDouble;
 import com.github.davidmoten.rtree2.geometry.internal.LineFloat;
 import com.github.davidmoten.rtree2.geometry.internal.PointDouble;
 import com.github.davidmoten.rtree2.geometry.internal.PointFloat;
+import com.github.davidmoten.rtree2.geometry.internal.PolygonDouble;
 import com.github.davidmoten.rtree2.geometry.internal.RectangleDouble;
 import com.github.davidmoten.rtree2.geometry.internal.RectangleFloat;
 
@@ -58,6 +63,93 @@ public final class Geometries {
         return  RectangleDouble.create(x1, y1, x2, y2);
     }
 
+    /**
+     * Returns a 3D point (a {@link Box} with zero extent).
+     * 
+     * @param x
+     *            x ordinate
+     * @param y
+     *            y ordinate
+     * @param z
+     *            z ordinate
+     * @return 3D point
+     */
+    public static Box point(double x, double y, double z) {
+        double[] p = new double[] { x, y, z };
+        return BoxDouble.create(p, p);
+    }
+
+    public static Box point(float x, float y, float z) {
+        float[] p = new float[] { x, y, z };
+        return BoxFloat.create(p, p);
+    }
+
+    public static Box box(double x1, double y1, double z1, double x2, double y2, double z2) {
+        return BoxDouble.create(new double[] { x1, y1, z1 }, new double[] { x2, y2, z2 });
+    }
+
+    public static Box box(float x1, float y1, float z1, float x2, float y2, float z2) {
+        return BoxFloat.create(new float[] { x1, y1, z1 }, new float[] { x2, y2, z2 });
+    }
+
+    /**
+     * Returns a box with the given lower and upper bounds in each dimension.
+     * 
+     * @param mins
+     *            lower bounds (at least 2 dimensions)
+     * @param maxes
+     *            upper bounds, same length as mins
+     * @return box
+     */
+    public static Box box(double[] mins, double[] maxes) {
+        return BoxDouble.create(mins, maxes);
+    }
+
+    public static Box box(float[] mins, float[] maxes) {
+        return BoxFloat.create(mins, maxes);
+    }
+
+    /**
+     * Returns a spatio-temporal box covering the given region over the time
+     * interval [from, to]. Time is mapped by <code>scale</code> to the third
+     * dimension (index 2) so it is split and packed as an axis of its own.
+     * Trajectories can be indexed by their segments, each segment being the
+     * region of its line over its time interval.
+     * 
+     * @param region
+     *            spatial extent
+     * @param from
+     *            start time (for example epoch milliseconds)
+     * @param to
+     *            end time, not before from
+     * @param scale
+     *            maps times to the time ordinate, the same scale must be used
+     *            for all entries and queries of a tree
+     * @return spatio-temporal box
+     */
+    public static Box spaceTime(Rectangle region, long from, long to, TimeScale scale) {
+        return box(region.x1(), region.y1(), scale.ordinate(from), region.x2(), region.y2(),
+                scale.ordinate(to));
+    }
+
+    /**
+     * Returns a spatio-temporal point: a position at an instant in time.
+     * 
+     * @param x
+     *            x ordinate
+     * @param y
+     *            y ordinate
+     * @param time
+     *            time (for example epoch milliseconds)
+     * @param scale
+     *            maps times to the time ordinate, the same scale must be used
+     *            for all entries and queries of a tree
+     * @return spatio-temporal point
+     */
+    public static Box spaceTime(double x, double y, long time, TimeScale scale) {
+        return point(x, y, scale.ordinate(time));
+    }
+
     public static Circle circle(double x, double y, double radius) {
         return CircleDouble.create(x, y, radius);
     }
@@ -74,6 +166,29 @@ public final class Geometries {
         return LineFloat.create(x1, y1, x2, y2);
     }
 
+    /**
+     * Returns a polygon with the given vertices. The ring is implicitly closed.
+     * 
+     * @param xy
+     *            alternating x and y ordinates of at least 3 vertices
+     * @return polygon
+     */
+    public static Polygon polygon(double... xy) {
+        return PolygonDouble.create(new double[][] { xy });
+    }
+
+    /**
+     * Returns a polygon made of the given rings combined with the even-odd rule:
+     * disjoint rings are separate parts and rings inside another ring are holes.
+     * 
+     * @param rings
+     *            each ring as alternating x and y ordinates of at least 3 vertices
+     * @return polygon
+     */
+    public static Polygon multiPolygon(List<double[]> rings) {
+        return PolygonDouble.create(rings.toArray(new double[rings.size()][]));
+    }
+
     @VisibleForTesting
     static double normalizeLongitude(double d) {
         return normalizeLongitude((float) d);
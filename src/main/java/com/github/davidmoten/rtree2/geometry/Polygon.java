@@ -0,0 +1,85 @@
+package com.github.davidmoten.rtree2.geometry;
+
+/**
+ * A polygon made of one or more closed rings. A point is inside the polygon if a
+ * ray from it crosses the rings an odd number of times (the even-odd rule) so
+ * rings nested inside another ring are holes and disjoint rings are separate
+ * parts of a multipolygon.
+ */
+public interface Polygon extends Geometry {
+
+    /**
+     * Returns the number of rings.
+     *
+     * @return number of rings
+     */
+    int rings();
+
+    /**
+     * Returns the vertices of the ith ring as alternating x and y ordinates. The
+     * ring is implicitly closed (the last vertex joins the first).
+     *
+     * @param i
+     *            0-based ring index
+     * @return the ordinates of the vertices of the ring
+     */
+    double[] ring(int i);
+
+    /**
+     * Returns true if and only if the point (x, y) is inside the polygon according
+     * to the even-odd rule.
+     *
+     * @param x
+     *            x ordinate
+     * @param y
+     *            y ordinate
+     * @return true if the point is inside the polygon
+     */
+    boolean contains(double x, double y);
+
+    /**
+     * Returns true if and only if the rectangle lies wholly inside the polygon.
+     * Rectangles touching the boundary of the polygon may return false.
+     *
+     * @param r
+     *            rectangle to test
+     * @return true if r is inside the polygon
+     */
+    boolean contains(Rectangle r);
+
+    boolean intersects(Point point);
+
+    boolean intersects(Line line);
+
+    boolean intersects(Circle circle);
+
+    /**
+     * Returns true if and only if the polygons share at least one point: an edge
+     * of one crosses an edge of the other or one lies inside the other.
+     *
+     * @param polygon
+     *            polygon to test
+     * @return true if the polygons intersect
+     */
+    boolean intersects(Polygon polygon);
+
+    /**
+     * Returns the Euclidean distance from the polygon to the line (0 if they
+     * intersect).
+     *
+     * @param line
+     *            line to measure to
+     * @return distance to the line
+     */
+    double distance(Line line);
+
+    /**
+     * Returns the Euclidean distance between the polygons (0 if they intersect).
+     *
+     * @param polygon
+     *            polygon to measure to
+     * @return distance to the polygon
+     */
+    double distance(Polygon polygon);
+
+}
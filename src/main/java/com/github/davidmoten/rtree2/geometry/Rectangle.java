@@ -22,4 +22,51 @@ public interface Rectangle extends Geometry, HasGeometry {
     
     boolean isDoublePrecision();
 
-}
\ No newline at end of file
+    /**
+     * Returns the number of dimensions of this rectangle (2 unless this is a
+     * {@link Box}). A rectangle is treated as unbounded in any dimension it does
+     * not have when compared with a rectangle of more dimensions.
+     * 
+     * @return number of dimensions
+     */
+    default int dimensions() {
+        return 2;
+    }
+
+    /**
+     * Returns the lower bound of the rectangle in the given dimension (0 is x, 1
+     * is y).
+     * 
+     * @param dimension
+     *            0-based dimension index
+     * @return the lower bound in the dimension
+     */
+    default double lower(int dimension) {
+        if (dimension == 0) {
+            return x1();
+        } else if (dimension == 1) {
+            return y1();
+        } else {
+            throw new IndexOutOfBoundsException("dimension " + dimension);
+        }
+    }
+
+    /**
+     * Returns the upper bound of the rectangle in the given dimension (0 is x, 1
+     * is y).
+     * 
+     * @param dimension
+     *            0-based dimension index
+     * @return the upper bound in the dimension
+     */
+    default double upper(int dimension) {
+        if (dimension == 0) {
+            return x2();
+        } else if (dimension == 1) {
+            return y2();
+        } else {
+            throw new IndexOutOfBoundsException("dimension " + dimension);
+        }
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.github.davidmoten.rtree2.geometry;
+
+import com.github.davidmoten.guavamini.Preconditions;
+
+/**
+ * Maps times (for example epoch milliseconds) to the time ordinate of
+ * spatio-temporal boxes and back. The R-tree split and packing heuristics
+ * compare margins, areas and overlaps across all dimensions so the time
+ * ordinate should vary over a range comparable to the spatial ordinates. Raw
+ * epoch milliseconds (about 1e12) would make every split a split on time alone
+ * and lose spatial selectivity, so choose <code>millisPerUnit</code> so that a
+ * typical query interval spans about as many units as a typical query region.
+ */
+public final class TimeScale {
+
+    private final long origin;
+    private final double millisPerUnit;
+
+    private TimeScale(long origin, double millisPerUnit) {
+        Preconditions.checkArgument(millisPerUnit > 0, "millisPerUnit must be > 0");
+        this.origin = origin;
+        this.millisPerUnit = millisPerUnit;
+    }
+
+    /**
+     * Returns a time scale that maps <code>origin</code> to ordinate 0 and
+     * <code>millisPerUnit</code> time units to one unit of the time ordinate.
+     *
+     * @param origin
+     *            time mapped to ordinate 0 (for example the start of the data)
+     * @param millisPerUnit
+     *            number of time units per unit of the time ordinate
+     * @return time scale
+     */
+    public static TimeScale create(long origin, double millisPerUnit) {
+        return new TimeScale(origin, millisPerUnit);
+    }
+
+    /**
+     * Returns the time ordinate of the given time.
+     *
+     * @param time
+     *            time to map
+     * @return ordinate of the time
+     */
+    public double ordinate(long time) {
+        return (time - origin) / millisPerUnit;
+    }
+
+    /**
+     * Returns the time of the given time ordinate (rounded to the nearest time
+     * unit).
+     *
+     * @param ordinate
+     *            ordinate to map
+     * @return time of the ordinate
+     */
+    public long time(double ordinate) {
+        return origin + Math.round(ordinate * millisPerUnit);
+    }
+
+}
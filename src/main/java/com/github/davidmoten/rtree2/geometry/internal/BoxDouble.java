@@ -0,0 +1,152 @@
+package com.github.davidmoten.rtree2.geometry.internal;
+
+import java.util.Arrays;
+
+import com.github.davidmoten.guavamini.Preconditions;
+import com.github.davidmoten.rtree2.geometry.Box;
+import com.github.davidmoten.rtree2.geometry.Geometry;
+import com.github.davidmoten.rtree2.geometry.Rectangle;
+import com.github.davidmoten.rtree2.internal.util.ObjectsHelper;
+
+public final class BoxDouble implements Box {
+
+    private final double[] mins;
+    private final double[] maxes;
+
+    private BoxDouble(double[] mins, double[] maxes) {
+        Preconditions.checkArgument(mins.length == maxes.length,
+                "mins and maxes must have the same length");
+        Preconditions.checkArgument(mins.length >= 2, "at least 2 dimensions required");
+        for (int i = 0; i < mins.length; i++) {
+            Preconditions.checkArgument(maxes[i] >= mins[i]);
+        }
+        this.mins = mins;
+        this.maxes = maxes;
+    }
+
+    public static BoxDouble create(double[] mins, double[] maxes) {
+        return new BoxDouble(mins.clone(), maxes.clone());
+    }
+
+    @Override
+    public int dimensions() {
+        return mins.length;
+    }
+
+    @Override
+    public double lower(int dimension) {
+        return mins[dimension];
+    }
+
+    @Override
+    public double upper(int dimension) {
+        return maxes[dimension];
+    }
+
+    @Override
+    public double x1() {
+        return mins[0];
+    }
+
+    @Override
+    public double y1() {
+        return mins[1];
+    }
+
+    @Override
+    public double x2() {
+        return maxes[0];
+    }
+
+    @Override
+    public double y2() {
+        return maxes[1];
+    }
+
+    @Override
+    public double area() {
+        double volume = 1;
+        for (int i = 0; i < mins.length; i++) {
+            volume *= maxes[i] - mins[i];
+        }
+        return volume;
+    }
+
+    @Override
+    public double intersectionArea(Rectangle r) {
+        return GeometryUtil.intersectionVolume(this, r);
+    }
+
+    @Override
+    public double perimeter() {
+        double sum = 0;
+        for (int i = 0; i < mins.length; i++) {
+            sum += maxes[i] - mins[i];
+        }
+        // each edge length occurs 2^(d-1) times
+        return sum * (1 << (mins.length - 1));
+    }
+
+    @Override
+    public Rectangle add(Rectangle r) {
+        Preconditions.checkArgument(r.dimensions() == mins.length,
+                "dimensions must match");
+        double[] a = new double[mins.length];
+        double[] b = new double[mins.length];
+        for (int i = 0; i < mins.length; i++) {
+            a[i] = Math.min(mins[i], r.lower(i));
+            b[i] = Math.max(maxes[i], r.upper(i));
+        }
+        return new BoxDouble(a, b);
+    }
+
+    @Override
+    public boolean contains(double x, double y) {
+        return x >= mins[0] && x <= maxes[0] && y >= mins[1] && y <= maxes[1];
+    }
+
+    @Override
+    public boolean intersects(Rectangle r) {
+        return GeometryUtil.intersects(this, r);
+    }
+
+    @Override
+    public double distance(Rectangle r) {
+        return GeometryUtil.distance(this, r);
+    }
+
+    @Override
+    public Rectangle mbr() {
+        return this;
+    }
+
+    @Override
+    public Geometry geometry() {
+        return this;
+    }
+
+    @Override
+    public boolean isDoublePrecision() {
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(mins) + Arrays.hashCode(maxes);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        BoxDouble other = ObjectsHelper.asClass(obj, BoxDouble.class);
+        if (other != null) {
+            return Arrays.equals(mins, other.mins) && Arrays.equals(maxes, other.maxes);
+        } else
+            return false;
+    }
+
+    @Override
+    public String toString() {
+        return "Box [mins=" + Arrays.toString(mins) + ", maxes=" + Arrays.toString(maxes) + "]";
+    }
+
+}
@@ -1,7 +1,10 @@
 package com.github.davidmoten.rtree2.geometry.internal;
 
+import com.github.davidmoten.guavamini.Preconditions;
 import com.github.davidmoten.rtree2.geometry.Circle;
 import com.github.davidmoten.rtree2.geometry.Rectangle;
+import com.github.davidmoten.rtree2.internal.Line2D;
+import com.github.davidmoten.rtree2.internal.RectangleUtil;
 
 public final class GeometryUtil {
 
@@ -76,7 +79,171 @@ public final class GeometryUtil {
             double b1, double a2, double b2) {
         return x1 <= a2 && a1 <= x2 && y1 <= b2 && b1 <= y2;
     }
+
+    /**
+     * Returns true if and only if the rectangle (x1, y1, x2, y2) wholly contains
+     * the rectangle (a1, b1, a2, b2). Touching boundaries count as contained.
+     * 
+     * @param x1
+     *            min x of the containing rectangle
+     * @param y1
+     *            min y of the containing rectangle
+     * @param x2
+     *            max x of the containing rectangle
+     * @param y2
+     *            max y of the containing rectangle
+     * @param a1
+     *            min x of the contained rectangle
+     * @param b1
+     *            min y of the contained rectangle
+     * @param a2
+     *            max x of the contained rectangle
+     * @param b2
+     *            max y of the contained rectangle
+     * @return true if the first rectangle contains the second
+     */
+    public static boolean contains(double x1, double y1, double x2, double y2, double a1,
+            double b1, double a2, double b2) {
+        return x1 <= a1 && a2 <= x2 && y1 <= b1 && b2 <= y2;
+    }
+
+    /**
+     * Returns the maximum Euclidean distance between any point of r and any point
+     * of s.
+     * 
+     * @param r
+     *            first rectangle
+     * @param s
+     *            second rectangle
+     * @return max distance between points of the two rectangles
+     */
+    public static double maxDistance(Rectangle r, Rectangle s) {
+        int d = r.dimensions();
+        if (d != s.dimensions()) {
+            // the rectangle with fewer dimensions is unbounded in the others
+            return Double.POSITIVE_INFINITY;
+        } else if (d > 2) {
+            double sum = 0;
+            for (int i = 0; i < d; i++) {
+                double v = max(Math.abs(r.upper(i) - s.lower(i)),
+                        Math.abs(s.upper(i) - r.lower(i)));
+                sum += v * v;
+            }
+            return Math.sqrt(sum);
+        }
+        double dx = max(Math.abs(r.x2() - s.x1()), Math.abs(s.x2() - r.x1()));
+        double dy = max(Math.abs(r.y2() - s.y1()), Math.abs(s.y2() - r.y1()));
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Returns true if and only if r wholly contains s in every dimension of r.
+     * Touching boundaries count as contained. A two dimensional r is unbounded in
+     * any further dimensions of s, and r never contains an s with fewer
+     * dimensions than itself.
+     *
+     * @param r
+     *            the containing rectangle
+     * @param s
+     *            the contained rectangle
+     * @return true if r contains s
+     */
+    public static boolean contains(Rectangle r, Rectangle s) {
+        int d = r.dimensions();
+        if (d == 2) {
+            // r is unbounded in any further dimensions of s
+            return contains(r.x1(), r.y1(), r.x2(), r.y2(), s.x1(), s.y1(), s.x2(), s.y2());
+        } else if (s.dimensions() < d) {
+            return false;
+        } else {
+            for (int i = 0; i < d; i++) {
+                if (s.lower(i) < r.lower(i) || s.upper(i) > r.upper(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Returns true if and only if the two rectangles intersect in every dimension
+     * they both have.
+     * 
+     * @param r
+     *            first rectangle
+     * @param s
+     *            second rectangle
+     * @return true if r and s intersect
+     */
+    public static boolean intersects(Rectangle r, Rectangle s) {
+        int d = Math.min(r.dimensions(), s.dimensions());
+        for (int i = 0; i < d; i++) {
+            if (r.lower(i) > s.upper(i) || s.lower(i) > r.upper(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the Euclidean distance between two rectangles over the dimensions
+     * they both have.
+     * 
+     * @param r
+     *            first rectangle
+     * @param s
+     *            second rectangle
+     * @return distance between r and s
+     */
+    public static double distance(Rectangle r, Rectangle s) {
+        int d = Math.min(r.dimensions(), s.dimensions());
+        double sum = 0;
+        for (int i = 0; i < d; i++) {
+            double gap = max(0, max(r.lower(i) - s.upper(i), s.lower(i) - r.upper(i)));
+            sum += gap * gap;
+        }
+        return Math.sqrt(sum);
+    }
+
+    /**
+     * Returns the volume of the intersection of two rectangles with the same
+     * number of dimensions.
+     * 
+     * @param r
+     *            first rectangle
+     * @param s
+     *            second rectangle
+     * @return volume of the intersection
+     */
+    public static double intersectionVolume(Rectangle r, Rectangle s) {
+        int d = r.dimensions();
+        Preconditions.checkArgument(s.dimensions() == d, "dimensions must match");
+        double volume = 1;
+        for (int i = 0; i < d; i++) {
+            double v = Math.min(r.upper(i), s.upper(i)) - max(r.lower(i), s.lower(i));
+            if (v < 0) {
+                return 0;
+            }
+            volume *= v;
+        }
+        return volume;
+    }
     
+    /**
+     * Returns true if and only if the rectangle lies wholly inside the circle.
+     * 
+     * @param circle
+     *            the circle
+     * @param r
+     *            the rectangle
+     * @return true if every point of r is within the circle
+     */
+    public static boolean contains(Circle circle, Rectangle r) {
+        double dx = max(Math.abs(r.x1() - circle.x()), Math.abs(r.x2() - circle.x()));
+        double dy = max(Math.abs(r.y1() - circle.y()), Math.abs(r.y2() - circle.y()));
+        return dx * dx + dy * dy <= circle.radius() * circle.radius();
+    }
+
     public static boolean lineIntersects(double x1, double y1, double x2, double y2, Circle circle) {
 
         // using Vector Projection
@@ -107,5 +274,70 @@ public final class GeometryUtil {
 
     }
 
+    /**
+     * Returns the Euclidean distance between the line segment from (x1, y1) to
+     * (x2, y2) and the rectangle r (0 if they intersect). Nothing is allocated so
+     * it can be used in scans over many segments.
+     * 
+     * @param x1
+     *            x ordinate of the start of the segment
+     * @param y1
+     *            y ordinate of the start of the segment
+     * @param x2
+     *            x ordinate of the end of the segment
+     * @param y2
+     *            y ordinate of the end of the segment
+     * @param r
+     *            the rectangle
+     * @return distance between the segment and r
+     */
+    public static double segmentDistance(double x1, double y1, double x2, double y2,
+            Rectangle r) {
+        if (RectangleUtil.rectangleIntersectsLine(r.x1(), r.y1(), r.x2() - r.x1(),
+                r.y2() - r.y1(), x1, y1, x2, y2)) {
+            return 0;
+        }
+        // the closest points of disjoint convex shapes include a vertex of one
+        double d = min(distance(x1, y1, r), distance(x2, y2, r));
+        d = min(d, Line2D.ptSegDist(x1, y1, x2, y2, r.x1(), r.y1()));
+        d = min(d, Line2D.ptSegDist(x1, y1, x2, y2, r.x1(), r.y2()));
+        d = min(d, Line2D.ptSegDist(x1, y1, x2, y2, r.x2(), r.y1()));
+        return min(d, Line2D.ptSegDist(x1, y1, x2, y2, r.x2(), r.y2()));
+    }
+
+    /**
+     * Returns the Euclidean distance between the line segment from (x1, y1) to
+     * (x2, y2) and the line segment from (a1, b1) to (a2, b2) (0 if they
+     * intersect). Nothing is allocated.
+     * 
+     * @param x1
+     *            x ordinate of the start of the first segment
+     * @param y1
+     *            y ordinate of the start of the first segment
+     * @param x2
+     *            x ordinate of the end of the first segment
+     * @param y2
+     *            y ordinate of the end of the first segment
+     * @param a1
+     *            x ordinate of the start of the second segment
+     * @param b1
+     *            y ordinate of the start of the second segment
+     * @param a2
+     *            x ordinate of the end of the second segment
+     * @param b2
+     *            y ordinate of the end of the second segment
+     * @return distance between the segments
+     */
+    public static double segmentDistance(double x1, double y1, double x2, double y2, double a1,
+            double b1, double a2, double b2) {
+        if (Line2D.linesIntersect(x1, y1, x2, y2, a1, b1, a2, b2)) {
+            return 0;
+        }
+        // the closest points of disjoint segments include an end point
+        double d = min(Line2D.ptSegDist(x1, y1, x2, y2, a1, b1),
+                Line2D.ptSegDist(x1, y1, x2, y2, a2, b2));
+        d = min(d, Line2D.ptSegDist(a1, b1, a2, b2, x1, y1));
+        return min(d, Line2D.ptSegDist(a1, b1, a2, b2, x2, y2));
+    }
 
 }
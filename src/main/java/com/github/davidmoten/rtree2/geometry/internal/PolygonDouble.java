@@ -0,0 +1,445 @@
+package com.github.davidmoten.rtree2.geometry.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+
+import com.github.davidmoten.guavamini.Preconditions;
+import com.github.davidmoten.rtree2.geometry.Circle;
+import com.github.davidmoten.rtree2.geometry.Line;
+import com.github.davidmoten.rtree2.geometry.Point;
+import com.github.davidmoten.rtree2.geometry.Polygon;
+import com.github.davidmoten.rtree2.geometry.Rectangle;
+import com.github.davidmoten.rtree2.internal.Line2D;
+import com.github.davidmoten.rtree2.internal.RectangleUtil;
+import com.github.davidmoten.rtree2.internal.util.ObjectsHelper;
+
+/**
+ * A polygon with an edge index for fast point-in-polygon and rectangle tests.
+ * The y range of the polygon is divided into horizontal bands and each band
+ * records the edges whose y range overlaps it, so a test only has to look at the
+ * edges in the bands it touches rather than every edge. The band height is
+ * sized from the y extents of the edges and edges spanning more than a few
+ * bands are kept once in a shared list (checked by every test) rather than in
+ * every band they cross, so the index is linear in the number of edges.
+ */
+public final class PolygonDouble implements Polygon {
+
+    private static final int EDGES_PER_BAND = 4;
+
+    private static final int MAX_BANDS_PER_EDGE = 4;
+
+    private final double[][] rings;
+    private final Rectangle mbr;
+
+    // edge i runs from (x1[i], y1[i]) to (x2[i], y2[i])
+    private final double[] x1;
+    private final double[] y1;
+    private final double[] x2;
+    private final double[] y2;
+
+    private final int numBands;
+    private final double bandHeight;
+    private final int[][] bands;
+    private final int[] spanning;
+
+    private PolygonDouble(double[][] rings) {
+        Preconditions.checkArgument(rings.length > 0, "at least one ring required");
+        int n = 0;
+        for (double[] ring : rings) {
+            Preconditions.checkArgument(ring.length >= 6 && ring.length % 2 == 0,
+                    "ring must have at least 3 vertices given as x,y pairs");
+            n += ring.length / 2;
+        }
+        this.rings = rings;
+        this.x1 = new double[n];
+        this.y1 = new double[n];
+        this.x2 = new double[n];
+        this.y2 = new double[n];
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        double[] heights = new double[n];
+        int e = 0;
+        for (double[] ring : rings) {
+            int m = ring.length / 2;
+            for (int i = 0; i < m; i++) {
+                int j = (i + 1) % m;
+                x1[e] = ring[2 * i];
+                y1[e] = ring[2 * i + 1];
+                x2[e] = ring[2 * j];
+                y2[e] = ring[2 * j + 1];
+                minX = Math.min(minX, x1[e]);
+                minY = Math.min(minY, y1[e]);
+                maxX = Math.max(maxX, x1[e]);
+                maxY = Math.max(maxY, y1[e]);
+                heights[e] = Math.abs(y2[e] - y1[e]);
+                e++;
+            }
+        }
+        this.mbr = RectangleDouble.create(minX, minY, maxX, maxY);
+        // aim for bands about as high as the shorter edges (the lower quartile)
+        // so they are in one or two bands, taller edges that would span many
+        // bands are shared instead
+        Arrays.sort(heights);
+        double quartile = heights[n / 4];
+        double fit = quartile == 0 ? n : (maxY - minY) / quartile;
+        this.numBands = (int) Math.max(1, Math.min(n / EDGES_PER_BAND, fit));
+        this.bandHeight = (maxY - minY) / numBands;
+        List<List<Integer>> lists = new ArrayList<List<Integer>>(numBands);
+        for (int b = 0; b < numBands; b++) {
+            lists.add(new ArrayList<Integer>());
+        }
+        List<Integer> spanningList = new ArrayList<Integer>();
+        for (e = 0; e < n; e++) {
+            int from = band(Math.min(y1[e], y2[e]));
+            int to = band(Math.max(y1[e], y2[e]));
+            if (to - from >= MAX_BANDS_PER_EDGE) {
+                spanningList.add(e);
+            } else {
+                for (int b = from; b <= to; b++) {
+                    lists.get(b).add(e);
+                }
+            }
+        }
+        this.bands = new int[numBands][];
+        for (int b = 0; b < numBands; b++) {
+            this.bands[b] = toArray(lists.get(b));
+        }
+        this.spanning = toArray(spanningList);
+    }
+
+    public static PolygonDouble create(double[][] rings) {
+        double[][] copy = new double[rings.length][];
+        for (int i = 0; i < rings.length; i++) {
+            copy[i] = rings[i].clone();
+        }
+        return new PolygonDouble(copy);
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] a = new int[list.size()];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = list.get(i);
+        }
+        return a;
+    }
+
+    private int band(double y) {
+        if (bandHeight == 0) {
+            return 0;
+        } else {
+            int b = (int) ((y - mbr.y1()) / bandHeight);
+            return Math.max(0, Math.min(numBands - 1, b));
+        }
+    }
+
+    @Override
+    public int rings() {
+        return rings.length;
+    }
+
+    @Override
+    public double[] ring(int i) {
+        return rings[i].clone();
+    }
+
+    @Override
+    public boolean contains(double x, double y) {
+        if (!mbr.contains(x, y)) {
+            return false;
+        }
+        boolean inside = false;
+        for (int e : bands[band(y)]) {
+            if (crosses(e, x, y)) {
+                inside = !inside;
+            }
+        }
+        for (int e : spanning) {
+            if (crosses(e, x, y)) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    // true if a ray from (x, y) in the positive x direction crosses edge e
+    private boolean crosses(int e, double x, double y) {
+        return (y1[e] > y) != (y2[e] > y)
+                && x < (x2[e] - x1[e]) * (y - y1[e]) / (y2[e] - y1[e]) + x1[e];
+    }
+
+    /**
+     * Returns true if <code>test</code> holds for any edge that may overlap the y
+     * range from <code>minY</code> to <code>maxY</code>.
+     */
+    private boolean anyEdge(double minY, double maxY, IntPredicate test) {
+        for (int e : spanning) {
+            if (test.test(e)) {
+                return true;
+            }
+        }
+        int to = band(maxY);
+        for (int b = band(minY); b <= to; b++) {
+            for (int e : bands[b]) {
+                if (test.test(e)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean contains(Rectangle r) {
+        return GeometryUtil.contains(mbr, r) && contains(r.x1(), r.y1()) && !edgeIntersects(r);
+    }
+
+    @Override
+    public boolean intersects(Rectangle r) {
+        if (!mbr.intersects(r)) {
+            return false;
+        } else {
+            // either a corner of r is inside, or an edge crosses r, or r is
+            // wholly outside
+            return contains(r.x1(), r.y1()) || edgeIntersects(r);
+        }
+    }
+
+    private boolean edgeIntersects(Rectangle r) {
+        double w = r.x2() - r.x1();
+        double h = r.y2() - r.y1();
+        return anyEdge(r.y1(), r.y2(),
+                e -> GeometryUtil.intersects(Math.min(x1[e], x2[e]), Math.min(y1[e], y2[e]),
+                        Math.max(x1[e], x2[e]), Math.max(y1[e], y2[e]), r.x1(), r.y1(), r.x2(),
+                        r.y2())
+                        && RectangleUtil.rectangleIntersectsLine(r.x1(), r.y1(), w, h, x1[e],
+                                y1[e], x2[e], y2[e]));
+    }
+
+    @Override
+    public boolean intersects(Point point) {
+        return contains(point.x(), point.y());
+    }
+
+    @Override
+    public boolean intersects(Line line) {
+        if (!mbr.intersects(line.mbr())) {
+            return false;
+        } else if (contains(line.x1(), line.y1())) {
+            return true;
+        } else {
+            Rectangle r = line.mbr();
+            return anyEdge(r.y1(), r.y2(), e -> Line2D.linesIntersect(x1[e], y1[e], x2[e], y2[e],
+                    line.x1(), line.y1(), line.x2(), line.y2()));
+        }
+    }
+
+    @Override
+    public boolean intersects(Circle circle) {
+        if (!mbr.intersects(circle.mbr())) {
+            return false;
+        } else if (contains(circle.x(), circle.y())) {
+            return true;
+        } else {
+            Rectangle r = circle.mbr();
+            return anyEdge(r.y1(), r.y2(),
+                    e -> GeometryUtil.lineIntersects(x1[e], y1[e], x2[e], y2[e], circle));
+        }
+    }
+
+    @Override
+    public boolean intersects(Polygon polygon) {
+        PolygonDouble other = of(polygon);
+        if (!mbr.intersects(other.mbr)) {
+            return false;
+        } else if (containsAVertexOf(other) || other.containsAVertexOf(this)) {
+            return true;
+        } else {
+            // the edges of other near this polygon are checked against the edges
+            // of this polygon in the bands they overlap
+            for (int f = 0; f < other.x1.length; f++) {
+                double fx1 = other.x1[f];
+                double fy1 = other.y1[f];
+                double fx2 = other.x2[f];
+                double fy2 = other.y2[f];
+                if (GeometryUtil.intersects(Math.min(fx1, fx2), Math.min(fy1, fy2),
+                        Math.max(fx1, fx2), Math.max(fy1, fy2), mbr.x1(), mbr.y1(), mbr.x2(),
+                        mbr.y2())
+                        && anyEdge(Math.min(fy1, fy2), Math.max(fy1, fy2),
+                                e -> Line2D.linesIntersect(x1[e], y1[e], x2[e], y2[e], fx1, fy1,
+                                        fx2, fy2))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // if no edges cross then each ring of other is wholly inside or outside this
+    // polygon so testing one vertex per ring is enough
+    private boolean containsAVertexOf(PolygonDouble other) {
+        for (double[] ring : other.rings) {
+            if (contains(ring[0], ring[1])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static PolygonDouble of(Polygon polygon) {
+        if (polygon instanceof PolygonDouble) {
+            return (PolygonDouble) polygon;
+        } else {
+            double[][] rings = new double[polygon.rings()][];
+            for (int i = 0; i < rings.length; i++) {
+                rings[i] = polygon.ring(i);
+            }
+            return new PolygonDouble(rings);
+        }
+    }
+
+    @Override
+    public double distance(Rectangle r) {
+        if (intersects(r)) {
+            return 0;
+        } else {
+            return nearestEdge(r.x1(), r.y1(), r.x2(), r.y2(), Double.MAX_VALUE,
+                    e -> GeometryUtil.segmentDistance(x1[e], y1[e], x2[e], y2[e], r));
+        }
+    }
+
+    @Override
+    public double distance(Line line) {
+        if (intersects(line)) {
+            return 0;
+        } else {
+            double a1 = line.x1();
+            double b1 = line.y1();
+            double a2 = line.x2();
+            double b2 = line.y2();
+            return nearestEdge(Math.min(a1, a2), Math.min(b1, b2), Math.max(a1, a2),
+                    Math.max(b1, b2), Double.MAX_VALUE,
+                    e -> GeometryUtil.segmentDistance(x1[e], y1[e], x2[e], y2[e], a1, b1, a2, b2));
+        }
+    }
+
+    @Override
+    public double distance(Polygon polygon) {
+        PolygonDouble other = of(polygon);
+        if (other.x1.length > x1.length) {
+            // look up the edges of the smaller polygon in the index of the larger
+            return other.distance(this);
+        } else if (intersects(other)) {
+            return 0;
+        } else {
+            double d = Double.MAX_VALUE;
+            for (int f = 0; f < other.x1.length; f++) {
+                double a1 = other.x1[f];
+                double b1 = other.y1[f];
+                double a2 = other.x2[f];
+                double b2 = other.y2[f];
+                double minX = Math.min(a1, a2);
+                double minY = Math.min(b1, b2);
+                double maxX = Math.max(a1, a2);
+                double maxY = Math.max(b1, b2);
+                if (GeometryUtil.distance(minX, minY, maxX, maxY, mbr.x1(), mbr.y1(), mbr.x2(),
+                        mbr.y2()) < d) {
+                    d = nearestEdge(minX, minY, maxX, maxY, d, e -> GeometryUtil
+                            .segmentDistance(x1[e], y1[e], x2[e], y2[e], a1, b1, a2, b2));
+                }
+            }
+            return d;
+        }
+    }
+
+    /**
+     * Returns the smaller of <code>d</code> and the least <code>distance</code> of
+     * the edges that may be nearer than <code>d</code> to the rectangle from
+     * (<code>minX</code>, <code>minY</code>) to (<code>maxX</code>,
+     * <code>maxY</code>). Bands are visited outwards from those overlapping the
+     * rectangle until they are at least the best distance so far away and edges
+     * whose mbr is no nearer than that are skipped.
+     */
+    private double nearestEdge(double minX, double minY, double maxX, double maxY, double d,
+            IntToDoubleFunction distance) {
+        for (int e : spanning) {
+            d = nearer(e, minX, minY, maxX, maxY, d, distance);
+        }
+        int from = band(minY);
+        int to = band(maxY);
+        for (int b = from; b <= to; b++) {
+            d = nearestEdgeInBand(b, minX, minY, maxX, maxY, d, distance);
+        }
+        int below = from - 1;
+        int above = to + 1;
+        while (below >= 0 || above < numBands) {
+            boolean near = false;
+            if (below >= 0 && minY - (mbr.y1() + (below + 1) * bandHeight) < d) {
+                d = nearestEdgeInBand(below, minX, minY, maxX, maxY, d, distance);
+                near = true;
+            }
+            if (above < numBands && mbr.y1() + above * bandHeight - maxY < d) {
+                d = nearestEdgeInBand(above, minX, minY, maxX, maxY, d, distance);
+                near = true;
+            }
+            if (!near) {
+                break;
+            }
+            below--;
+            above++;
+        }
+        return d;
+    }
+
+    private double nearestEdgeInBand(int b, double minX, double minY, double maxX, double maxY,
+            double d, IntToDoubleFunction distance) {
+        for (int e : bands[b]) {
+            d = nearer(e, minX, minY, maxX, maxY, d, distance);
+        }
+        return d;
+    }
+
+    private double nearer(int e, double minX, double minY, double maxX, double maxY, double d,
+            IntToDoubleFunction distance) {
+        if (GeometryUtil.distance(Math.min(x1[e], x2[e]), Math.min(y1[e], y2[e]),
+                Math.max(x1[e], x2[e]), Math.max(y1[e], y2[e]), minX, minY, maxX, maxY) < d) {
+            return Math.min(d, distance.applyAsDouble(e));
+        } else {
+            return d;
+        }
+    }
+
+    @Override
+    public Rectangle mbr() {
+        return mbr;
+    }
+
+    @Override
+    public boolean isDoublePrecision() {
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.deepHashCode(rings);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        PolygonDouble other = ObjectsHelper.asClass(obj, PolygonDouble.class);
+        if (other != null) {
+            return Arrays.deepEquals(rings, other.rings);
+        } else
+            return false;
+    }
+
+    @Override
+    public String toString() {
+        return "Polygon [rings=" + Arrays.deepToString(rings) + "]";
+    }
+
+}
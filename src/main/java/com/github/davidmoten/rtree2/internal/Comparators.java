@@ -3,10 +3,8 @@ package com.github.davidmoten.rtree2.internal;
 import java.util.Comparator;
 import java.util.List;
 
-import com.github.davidmoten.rtree2.Entry;
 import com.github.davidmoten.rtree2.Selector;
 import com.github.davidmoten.rtree2.Splitter;
-import com.github.davidmoten.rtree2.geometry.Geometry;
 import com.github.davidmoten.rtree2.geometry.HasGeometry;
 import com.github.davidmoten.rtree2.geometry.Rectangle;
 
@@ -73,31 +71,4 @@ public final class Comparators {
         return gPlusR.area() - g.geometry().mbr().area();
     }
 
-    /**
-     * <p>
-     * Returns a comparator that can be used to sort entries returned by search
-     * methods. For example:
-     * </p>
-     * <p>
-     * <code>search(100).toSortedList(ascendingDistance(r))</code>
-     * </p>
-     * 
-     * @param <T>
-     *            the value type
-     * @param <S>
-     *            the entry type
-     * @param r
-     *            rectangle to measure distance to
-     * @return a comparator to sort by ascending distance from the rectangle
-     */
-    public static <T, S extends Geometry> Comparator<Entry<T, S>> ascendingDistance(
-            final Rectangle r) {
-        return new Comparator<Entry<T, S>>() {
-            @Override
-            public int compare(Entry<T, S> e1, Entry<T, S> e2) {
-                return Double.compare(e1.geometry().distance(r), e2.geometry().distance(r));
-            }
-        };
-    }
-
 }
@@ -0,0 +1,131 @@
+package com.github.davidmoten.rtree2.internal;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.github.davidmoten.rtree2.Context;
+import com.github.davidmoten.rtree2.Entry;
+import com.github.davidmoten.rtree2.Leaf;
+import com.github.davidmoten.rtree2.Node;
+import com.github.davidmoten.rtree2.geometry.Geometry;
+import com.github.davidmoten.rtree2.geometry.Rectangle;
+import com.github.davidmoten.rtree2.geometry.internal.GeometryUtil;
+
+/**
+ * A leaf of a concurrent R-tree. The entries list is never modified once
+ * published; writers holding the lock publish a new list (and mbr) instead so
+ * readers can traverse the leaf without locking. A leaf that has been replaced
+ * in the tree (by a split or removal) is marked obsolete and never modified
+ * again. The {@link Node} operations {@link #add(Entry)} and
+ * {@link #delete(Entry, boolean)} leave the leaf unchanged and return new nodes
+ * from the context's factory as for {@link LeafDefault}.
+ */
+public final class LeafConcurrent<T, S extends Geometry> implements Leaf<T, S> {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Context<T, S> context;
+    private volatile List<Entry<T, S>> entries;
+    private volatile Rectangle mbr;
+    private volatile boolean obsolete;
+
+    public LeafConcurrent(List<Entry<T, S>> entries, Context<T, S> context) {
+        this.context = context;
+        this.mbr = Util.mbr(entries);
+        this.entries = entries;
+    }
+
+    public ReentrantLock lock() {
+        return lock;
+    }
+
+    public boolean isObsolete() {
+        return obsolete;
+    }
+
+    public void markObsolete() {
+        obsolete = true;
+    }
+
+    /**
+     * Enlarges the mbr to cover <code>r</code> (an empty leaf takes the mbr
+     * <code>r</code>) ahead of an entry with mbr <code>r</code> being added. The
+     * caller must hold the lock of the leaf and of its parent.
+     *
+     * @param r
+     *            rectangle to cover
+     */
+    public void enlarge(Rectangle r) {
+        Rectangle m = mbr;
+        if (entries.isEmpty()) {
+            mbr = r;
+        } else if (!GeometryUtil.contains(m, r)) {
+            mbr = m.add(r);
+        }
+    }
+
+    /**
+     * Publishes new entries after an add. The caller must hold the lock, must
+     * have called {@link #enlarge(Rectangle)} for the added entry and must not
+     * modify <code>entries</code> afterwards.
+     *
+     * @param entries
+     *            the new entries of the leaf
+     */
+    public void update(List<Entry<T, S>> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Publishes new entries after a delete, shrinking the mbr to the remaining
+     * entries (an empty leaf keeps its last mbr). The caller must hold the lock of
+     * the leaf and of its parent and must not modify <code>entries</code>
+     * afterwards.
+     *
+     * @param entries
+     *            the new entries of the leaf
+     */
+    public void delete(List<Entry<T, S>> entries) {
+        // the entries are published first so that a reader that sees the
+        // smaller mbr doesn't see an entry outside it
+        this.entries = entries;
+        if (!entries.isEmpty()) {
+            this.mbr = Util.mbr(entries);
+        }
+    }
+
+    @Override
+    public Geometry geometry() {
+        return mbr;
+    }
+
+    @Override
+    public List<Entry<T, S>> entries() {
+        return entries;
+    }
+
+    @Override
+    public int count() {
+        return entries.size();
+    }
+
+    @Override
+    public Entry<T, S> entry(int i) {
+        return entries.get(i);
+    }
+
+    @Override
+    public List<Node<T, S>> add(Entry<? extends T, ? extends S> entry) {
+        return LeafHelper.add(entry, this);
+    }
+
+    @Override
+    public NodeAndEntries<T, S> delete(Entry<? extends T, ? extends S> entry, boolean all) {
+        return LeafHelper.delete(entry, all, this);
+    }
+
+    @Override
+    public Context<T, S> context() {
+        return context;
+    }
+
+}
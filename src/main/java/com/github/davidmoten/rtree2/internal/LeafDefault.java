@@ -14,11 +14,13 @@ public final class LeafDefault<T, S extends Geometry> implements Leaf<T, S> {
     private final List<Entry<T, S>> entries;
     private final Rectangle mbr;
     private final Context<T, S> context;
+    private final Object[] summaries;
 
     public LeafDefault(List<Entry<T, S>> entries, Context<T, S> context) {
         this.entries = entries;
         this.context = context;
         this.mbr = Util.mbr(entries);
+        this.summaries = Util.summaryOfEntries(entries, context);
     }
 
     @Override
@@ -36,6 +38,17 @@ public final class LeafDefault<T, S extends Geometry> implements Leaf<T, S> {
         return entries.size();
     }
 
+    /**
+     * Returns the summaries of the values of the entries of this leaf under the monoids
+     * of the context computed on construction, in the order of
+     * {@link Context#monoids()}. The returned array must not be modified.
+     * 
+     * @return summaries
+     */
+    public Object[] summaries() {
+        return summaries;
+    }
+
     @Override
     public List<Node<T, S>> add(Entry<? extends T, ? extends S> entry) {
         return LeafHelper.add(entry, this);
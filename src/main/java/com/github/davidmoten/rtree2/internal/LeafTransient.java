@@ -0,0 +1,120 @@
+package com.github.davidmoten.rtree2.internal;
+
+import java.util.List;
+
+import com.github.davidmoten.rtree2.Context;
+import com.github.davidmoten.rtree2.Entry;
+import com.github.davidmoten.rtree2.Leaf;
+import com.github.davidmoten.rtree2.Node;
+import com.github.davidmoten.rtree2.geometry.Geometry;
+import com.github.davidmoten.rtree2.geometry.Rectangle;
+import com.github.davidmoten.rtree2.geometry.internal.GeometryUtil;
+
+/**
+ * A leaf created by a transient R-tree. While its owner is still editing, the
+ * leaf may be modified in place by the owner. Once the owner has been made
+ * persistent the leaf is never modified again and behaves like
+ * {@link LeafDefault}.
+ */
+public final class LeafTransient<T, S extends Geometry> implements Leaf<T, S> {
+
+    private final Object owner;
+    private final List<Entry<T, S>> entries;
+    private Rectangle mbr;
+    private final Context<T, S> context;
+
+    /**
+     * Constructor.
+     *
+     * @param owner
+     *            token identifying the transient allowed to modify this leaf
+     * @param entries
+     *            mutable list of entries owned by this leaf
+     * @param context
+     *            options for the R-tree
+     */
+    public LeafTransient(Object owner, List<Entry<T, S>> entries, Context<T, S> context) {
+        this.owner = owner;
+        this.entries = entries;
+        this.context = context;
+        this.mbr = Util.mbr(entries);
+    }
+
+    public boolean isOwnedBy(Object owner) {
+        return owner != null && this.owner == owner;
+    }
+
+    /**
+     * Appends the entry to this leaf. May only be called by the owner.
+     *
+     * @param entry
+     *            entry to add
+     */
+    public void addInPlace(Entry<T, S> entry) {
+        entries.add(entry);
+        Rectangle r = entry.geometry().mbr();
+        if (!GeometryUtil.contains(mbr, r)) {
+            mbr = mbr.add(r);
+        }
+    }
+
+    /**
+     * Removes the first (or every if <code>all</code>) entry equal to the given
+     * entry. May only be called by the owner.
+     *
+     * @param entry
+     *            entry to remove
+     * @param all
+     *            if true removes every match otherwise removes the first
+     * @return number of entries removed
+     */
+    public int deleteInPlace(Entry<? extends T, ? extends S> entry, boolean all) {
+        int count = 0;
+        while (entries.remove(entry)) {
+            count++;
+            if (!all) {
+                break;
+            }
+        }
+        if (count > 0 && !entries.isEmpty()) {
+            mbr = Util.mbr(entries);
+        }
+        return count;
+    }
+
+    @Override
+    public Geometry geometry() {
+        return mbr;
+    }
+
+    @Override
+    public List<Entry<T, S>> entries() {
+        return entries;
+    }
+
+    @Override
+    public int count() {
+        return entries.size();
+    }
+
+    @Override
+    public List<Node<T, S>> add(Entry<? extends T, ? extends S> entry) {
+        return LeafHelper.add(entry, this);
+    }
+
+    @Override
+    public NodeAndEntries<T, S> delete(Entry<? extends T, ? extends S> entry, boolean all) {
+        return LeafHelper.delete(entry, all, this);
+    }
+
+    @Override
+    public Context<T, S> context() {
+        return context;
+    }
+
+    @Override
+    public Entry<T, S> entry(int i) {
+        return entries.get(i);
+    }
+
+}
@@ -200,7 +200,7 @@ public final class Line2D {
      *         otherwise.
      * @since 1.2
      */
-    static boolean linesIntersect(double x1, double y1, double x2, double y2, double x3,
+    public static boolean linesIntersect(double x1, double y1, double x2, double y2, double x3,
                                   double y3, double x4, double y4) {
         return ((relativeCCW(x1, y1, x2, y2, x3, y3) * relativeCCW(x1, y1, x2, y2, x4, y4) <= 0)
                 && (relativeCCW(x3, y3, x4, y4, x1, y1)
@@ -0,0 +1,129 @@
+package com.github.davidmoten.rtree2.internal;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.github.davidmoten.guavamini.Preconditions;
+import com.github.davidmoten.rtree2.Context;
+import com.github.davidmoten.rtree2.Entry;
+import com.github.davidmoten.rtree2.Node;
+import com.github.davidmoten.rtree2.NonLeaf;
+import com.github.davidmoten.rtree2.geometry.Geometry;
+import com.github.davidmoten.rtree2.geometry.Rectangle;
+import com.github.davidmoten.rtree2.geometry.internal.GeometryUtil;
+
+/**
+ * A non-leaf node of a concurrent R-tree. Like {@link LeafConcurrent} the
+ * children list is never modified once published so readers can traverse the
+ * node without locking. A node that has been replaced in the tree by a split
+ * is marked obsolete and never modified again. As for a leaf, {@link #add(Entry)}
+ * and {@link #delete(Entry, boolean)} copy the current subtree path rather than
+ * modifying it.
+ */
+public final class NonLeafConcurrent<T, S extends Geometry> implements NonLeaf<T, S> {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Context<T, S> context;
+    private volatile List<Node<T, S>> children;
+    private volatile Rectangle mbr;
+    private volatile boolean obsolete;
+
+    public NonLeafConcurrent(List<Node<T, S>> children, Context<T, S> context) {
+        Preconditions.checkArgument(!children.isEmpty());
+        this.context = context;
+        this.mbr = Util.mbr(children);
+        this.children = children;
+    }
+
+    public ReentrantLock lock() {
+        return lock;
+    }
+
+    public boolean isObsolete() {
+        return obsolete;
+    }
+
+    public void markObsolete() {
+        obsolete = true;
+    }
+
+    /**
+     * Enlarges the mbr to cover <code>r</code>. The caller must hold the lock of
+     * this node and of its parent (or the root lock if this is the root).
+     *
+     * @param r
+     *            rectangle to cover
+     */
+    public void enlarge(Rectangle r) {
+        Rectangle m = mbr;
+        if (!GeometryUtil.contains(m, r)) {
+            mbr = m.add(r);
+        }
+    }
+
+    /**
+     * Shrinks the mbr to that of the children after children have been removed or
+     * have shrunk. The caller must hold the lock of this node. The mbrs of the
+     * children only grow while this node is locked so the new mbr covers every
+     * entry below this node.
+     *
+     * @return true if the mbr changed
+     */
+    public boolean shrink() {
+        Rectangle m = Util.mbr(children);
+        if (m.equals(mbr)) {
+            return false;
+        } else {
+            mbr = m;
+            return true;
+        }
+    }
+
+    /**
+     * Publishes new children. The caller must hold the lock and must not modify
+     * <code>children</code> afterwards. The mbr is left as is (see
+     * {@link #shrink()} to fit it to the children after removing some).
+     *
+     * @param children
+     *            the new children of the node
+     */
+    public void update(List<Node<T, S>> children) {
+        this.children = children;
+    }
+
+    @Override
+    public Geometry geometry() {
+        return mbr;
+    }
+
+    @Override
+    public int count() {
+        return children.size();
+    }
+
+    @Override
+    public Node<T, S> child(int i) {
+        return children.get(i);
+    }
+
+    @Override
+    public List<Node<T, S>> children() {
+        return children;
+    }
+
+    @Override
+    public List<Node<T, S>> add(Entry<? extends T, ? extends S> entry) {
+        return NonLeafHelper.add(entry, this);
+    }
+
+    @Override
+    public NodeAndEntries<T, S> delete(Entry<? extends T, ? extends S> entry, boolean all) {
+        return NonLeafHelper.delete(entry, all, this);
+    }
+
+    @Override
+    public Context<T, S> context() {
+        return context;
+    }
+
+}
@@ -15,12 +15,16 @@ public final class NonLeafDefault<T, S extends Geometry> implements NonLeaf<T, S
     private final List<? extends Node<T, S>> children;
     private final Rectangle mbr;
     private final Context<T, S> context;
+    private final int size;
+    private final Object[] summaries;
 
     public NonLeafDefault(List<? extends Node<T, S>> children, Context<T, S> context) {
         Preconditions.checkArgument(!children.isEmpty());
         this.context = context;
         this.children = children;
         this.mbr = Util.mbr(children);
+        this.size = Util.size(children);
+        this.summaries = Util.summaryOfNodes(children, context);
     }
 
     @Override
@@ -33,6 +37,22 @@ public final class NonLeafDefault<T, S extends Geometry> implements NonLeaf<T, S
         return children.size();
     }
 
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the summaries of the values of the entries below this node under the monoids
+     * of the context computed on construction, in the order of
+     * {@link Context#monoids()}. The returned array must not be modified.
+     * 
+     * @return summaries
+     */
+    public Object[] summaries() {
+        return summaries;
+    }
+
     @Override
     public List<Node<T, S>> add(Entry<? extends T, ? extends S> entry) {
         return NonLeafHelper.add(entry, this);
@@ -0,0 +1,120 @@
+package com.github.davidmoten.rtree2.internal;
+
+import java.util.List;
+
+import com.github.davidmoten.guavamini.Preconditions;
+import com.github.davidmoten.rtree2.Context;
+import com.github.davidmoten.rtree2.Entry;
+import com.github.davidmoten.rtree2.Node;
+import com.github.davidmoten.rtree2.NonLeaf;
+import com.github.davidmoten.rtree2.geometry.Geometry;
+import com.github.davidmoten.rtree2.geometry.Rectangle;
+import com.github.davidmoten.rtree2.geometry.internal.GeometryUtil;
+
+/**
+ * A non-leaf node created by a transient R-tree. While its owner is still
+ * editing, the node's children may be replaced in place by the owner. Once the
+ * owner has been made persistent the node is never modified again and behaves
+ * like {@link NonLeafDefault}.
+ */
+public final class NonLeafTransient<T, S extends Geometry> implements NonLeaf<T, S> {
+
+    private final Object owner;
+    private final List<Node<T, S>> children;
+    private Rectangle mbr;
+    private final Context<T, S> context;
+    private int size;
+
+    /**
+     * Constructor.
+     *
+     * @param owner
+     *            token identifying the transient allowed to modify this node
+     * @param children
+     *            mutable list of children owned by this node
+     * @param context
+     *            options for the R-tree
+     */
+    public NonLeafTransient(Object owner, List<Node<T, S>> children, Context<T, S> context) {
+        Preconditions.checkArgument(!children.isEmpty());
+        this.owner = owner;
+        this.children = children;
+        this.context = context;
+        this.mbr = Util.mbr(children);
+        this.size = Util.size(children);
+    }
+
+    public boolean isOwnedBy(Object owner) {
+        return owner != null && this.owner == owner;
+    }
+
+    /**
+     * Records that an entry with the given mbr was added below this node. May only
+     * be called by the owner.
+     *
+     * @param r
+     *            mbr of the added entry
+     */
+    public void added(Rectangle r) {
+        size++;
+        if (!GeometryUtil.contains(mbr, r)) {
+            mbr = mbr.add(r);
+        }
+    }
+
+    /**
+     * Recalculates the mbr and size after children have been replaced or
+     * removed. May only be called by the owner.
+     */
+    public void refresh() {
+        mbr = Util.mbr(children);
+        size = Util.size(children);
+    }
+
+    @Override
+    public Geometry geometry() {
+        return mbr;
+    }
+
+    @Override
+    public int count() {
+        return children.size();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public List<Node<T, S>> add(Entry<? extends T, ? extends S> entry) {
+        return NonLeafHelper.add(entry, this);
+    }
+
+    @Override
+    public NodeAndEntries<T, S> delete(Entry<? extends T, ? extends S> entry, boolean all) {
+        return NonLeafHelper.delete(entry, all, this);
+    }
+
+    @Override
+    public Context<T, S> context() {
+        return context;
+    }
+
+    @Override
+    public Node<T, S> child(int i) {
+        return children.get(i);
+    }
+
+    /**
+     * Returns the children of this node. The owner may modify the returned list
+     * in place (followed by {@link #refresh()} or {@link #added(Rectangle)}).
+     *
+     * @return children of this node
+     */
+    @Override
+    public List<Node<T, S>> children() {
+        return children;
+    }
+
+}
@@ -1,11 +1,19 @@
 package com.github.davidmoten.rtree2.internal;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
 import com.github.davidmoten.guavamini.Preconditions;
+import com.github.davidmoten.rtree2.Context;
+import com.github.davidmoten.rtree2.Entry;
+import com.github.davidmoten.rtree2.Leaf;
+import com.github.davidmoten.rtree2.Monoid;
+import com.github.davidmoten.rtree2.Node;
+import com.github.davidmoten.rtree2.NonLeaf;
 import com.github.davidmoten.rtree2.geometry.Geometries;
+import com.github.davidmoten.rtree2.geometry.Geometry;
 import com.github.davidmoten.rtree2.geometry.HasGeometry;
 import com.github.davidmoten.rtree2.geometry.Rectangle;
 
@@ -15,6 +23,8 @@ import com.github.davidmoten.rtree2.geometry.Rectangle;
  */
 public final class Util {
 
+    private static final Object[] NO_SUMMARIES = new Object[0];
+
     private Util() {
         // prevent instantiation
     }
@@ -42,6 +52,10 @@ public final class Util {
      */
     public static Rectangle mbr(Collection<? extends HasGeometry> items) {
         Preconditions.checkArgument(!items.isEmpty());
+        int dimensions = items.iterator().next().geometry().mbr().dimensions();
+        if (dimensions > 2) {
+            return mbr(items, dimensions);
+        }
         double minX1 = Double.MAX_VALUE;
         double minY1 = Double.MAX_VALUE;
         double maxX2 = -Double.MAX_VALUE;
@@ -68,6 +82,154 @@ public final class Util {
         }
     }
 
+    private static Rectangle mbr(Collection<? extends HasGeometry> items, int dimensions) {
+        double[] mins = new double[dimensions];
+        double[] maxes = new double[dimensions];
+        Arrays.fill(mins, Double.MAX_VALUE);
+        Arrays.fill(maxes, -Double.MAX_VALUE);
+        boolean isDoublePrecision = false;
+        for (final HasGeometry item : items) {
+            Rectangle r = item.geometry().mbr();
+            if (r.isDoublePrecision()) {
+                isDoublePrecision = true;
+            }
+            for (int i = 0; i < dimensions; i++) {
+                mins[i] = Math.min(mins[i], r.lower(i));
+                maxes[i] = Math.max(maxes[i], r.upper(i));
+            }
+        }
+        if (isDoublePrecision) {
+            return Geometries.box(mins, maxes);
+        } else {
+            float[] a = new float[dimensions];
+            float[] b = new float[dimensions];
+            for (int i = 0; i < dimensions; i++) {
+                a[i] = (float) mins[i];
+                b[i] = (float) maxes[i];
+            }
+            return Geometries.box(a, b);
+        }
+    }
+
+    /**
+     * Returns the total number of entries below the given nodes.
+     * 
+     * @param nodes
+     *            nodes to sum the sizes of
+     * @return the sum of the sizes of the nodes
+     */
+    public static int size(List<? extends Node<?, ?>> nodes) {
+        int size = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            size += nodes.get(i).size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the summaries of the values of the given entries under each of the
+     * monoids of the context, in the order of {@link Context#monoids()}.
+     * 
+     * @param entries
+     *            entries to summarize
+     * @param context
+     *            options for the R-tree
+     * @return the summaries of the entries
+     */
+    public static <T, S extends Geometry> Object[] summaryOfEntries(
+            List<? extends Entry<T, S>> entries, Context<T, S> context) {
+        List<Monoid<? super T, Object>> monoids = monoids(context);
+        if (monoids.isEmpty()) {
+            return NO_SUMMARIES;
+        }
+        Object[] summaries = new Object[monoids.size()];
+        for (int j = 0; j < summaries.length; j++) {
+            Monoid<? super T, Object> monoid = monoids.get(j);
+            Object a = monoid.identity();
+            for (int i = 0; i < entries.size(); i++) {
+                a = monoid.combine(a, monoid.map(entries.get(i).value()));
+            }
+            summaries[j] = a;
+        }
+        return summaries;
+    }
+
+    /**
+     * Returns the combined summaries of the given nodes under each of the monoids
+     * of the context, in the order of {@link Context#monoids()}.
+     * 
+     * @param nodes
+     *            nodes to combine the summaries of
+     * @param context
+     *            options for the R-tree
+     * @return the combined summaries of the nodes
+     */
+    public static <T, S extends Geometry> Object[] summaryOfNodes(
+            List<? extends Node<T, S>> nodes, Context<T, S> context) {
+        List<Monoid<? super T, Object>> monoids = monoids(context);
+        if (monoids.isEmpty()) {
+            return NO_SUMMARIES;
+        }
+        Object[] summaries = new Object[monoids.size()];
+        for (int j = 0; j < summaries.length; j++) {
+            summaries[j] = monoids.get(j).identity();
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            Object[] s = summaries(nodes.get(i));
+            for (int j = 0; j < summaries.length; j++) {
+                summaries[j] = monoids.get(j).combine(summaries[j], s[j]);
+            }
+        }
+        return summaries;
+    }
+
+    /**
+     * Returns the summaries of the values of the entries at or below the node
+     * under each of the monoids of its context, in the order of
+     * {@link Context#monoids()}. The summaries are maintained by the default nodes
+     * and computed for other nodes.
+     * 
+     * @param node
+     *            node to summarize
+     * @return summaries of the entries of the node
+     */
+    public static <T, S extends Geometry> Object[] summaries(Node<T, S> node) {
+        if (node instanceof LeafDefault) {
+            return ((LeafDefault<T, S>) node).summaries();
+        } else if (node instanceof NonLeafDefault) {
+            return ((NonLeafDefault<T, S>) node).summaries();
+        } else if (node instanceof Leaf) {
+            return summaryOfEntries(((Leaf<T, S>) node).entries(), node.context());
+        } else {
+            return summaryOfNodes(((NonLeaf<T, S>) node).children(), node.context());
+        }
+    }
+
+    /**
+     * Returns the summary of the node (see {@link #summaries(Node)}) under the
+     * monoid at position <code>index</code> of the monoids of its context, which
+     * must equal <code>monoid</code>.
+     * 
+     * @param node
+     *            node to summarize
+     * @param monoid
+     *            the monoid at position index of the context of the node
+     * @param index
+     *            position of the monoid in {@link Context#monoids()}
+     * @return summary of the entries of the node
+     */
+    @SuppressWarnings("unchecked")
+    public static <T, S extends Geometry, A> A summary(Node<T, S> node,
+            Monoid<? super T, A> monoid, int index) {
+        return (A) summaries(node)[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T, S extends Geometry> List<Monoid<? super T, Object>> monoids(
+            Context<T, S> context) {
+        return (List<Monoid<? super T, Object>>) (List<?>) context.monoids();
+    }
+
     public static <T> List<T> add(List<T> list, T element) {
         final ArrayList<T> result = new ArrayList<T>(list.size() + 2);
         result.addAll(list);
@@ -81,6 +243,26 @@ public final class Util {
         return result;
     }
 
+    /**
+     * Returns the index of the given element in the list comparing by identity.
+     * 
+     * @param list
+     *            list to search
+     * @param element
+     *            element to find
+     * @param <T>
+     *            type of element
+     * @return index of element or -1 if not present
+     */
+    public static <T> int indexOf(List<? extends T> list, T element) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == element) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     public static <T> List<? extends T> replace(List<? extends T> list, T element,
             List<T> replacements) {
         List<T> list2 = new ArrayList<T>(list.size() + replacements.size());
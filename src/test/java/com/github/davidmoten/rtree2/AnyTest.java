@@ -0,0 +1,14 @@
+package com.github.davidmoten.rtree2;
+
+import org.junit.Test;
+
+import com.github.davidmoten.junit.Asserts;
+
+public class AnyTest {
+    
+    @Test
+    public void isUtilityClass() {
+        Asserts.assertIsUtilityClass(Any.class);
+    }
+
+}
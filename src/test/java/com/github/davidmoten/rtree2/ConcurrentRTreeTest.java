@@ -0,0 +1,266 @@
+package com.github.davidmoten.rtree2;
+
+import static com.github.davidmoten.rtree2.geometry.Geometries.rectangle;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import com.github.davidmoten.guavamini.Sets;
+import com.github.davidmoten.rtree2.geometry.Geometry;
+import com.github.davidmoten.rtree2.geometry.Rectangle;
+import com.github.davidmoten.rtree2.geometry.internal.GeometryUtil;
+import com.github.davidmoten.rtree2.internal.NodeAndEntries;
+
+public class ConcurrentRTreeTest {
+
+    @Test
+    public void testSearchMatchesRTree() {
+        List<Entry<Object, Geometry>> entries = RTreeTest.createRandomEntries(1000);
+        ConcurrentRTree<Object, Geometry> tree = RTree.maxChildren(4).createConcurrent();
+        RTree<Object, Geometry> expected = RTree.maxChildren(4).create();
+        for (Entry<Object, Geometry> entry : entries) {
+            tree.add(entry);
+            expected = expected.add(entry);
+        }
+        for (int i = 0; i < entries.size(); i += 3) {
+            assertTrue(tree.delete(entries.get(i)));
+            expected = expected.delete(entries.get(i));
+        }
+        assertFalse(tree.delete(entries.get(0)));
+        assertEquals(expected.size(), tree.size());
+        assertEquals(Sets.newHashSet(expected.entries()), Sets.newHashSet(tree.entries()));
+        Random random = new Random(25);
+        for (int i = 0; i < 100; i++) {
+            double x = random.nextDouble() * 1000;
+            double y = random.nextDouble() * 1000;
+            Rectangle r = rectangle(x, y, x + 50, y + 50);
+            assertEquals(Sets.newHashSet(expected.search(r)), Sets.newHashSet(tree.search(r)));
+        }
+    }
+
+    @Test
+    public void testNodeAddAndDeleteLeaveConcurrentNodesUnchanged() {
+        List<Entry<Object, Geometry>> entries = RTreeTest.createRandomEntries(100);
+        ConcurrentRTree<Object, Geometry> tree = RTree.maxChildren(4).createConcurrent();
+        for (Entry<Object, Geometry> entry : entries.subList(0, 99)) {
+            tree.add(entry);
+        }
+        Node<Object, Geometry> root = tree.root();
+        List<Entry<Object, Geometry>> added = new ArrayList<>();
+        for (Node<Object, Geometry> node : root.add(entries.get(99))) {
+            addEntries(node, added);
+        }
+        assertEquals(Sets.newHashSet(entries), Sets.newHashSet(added));
+        NodeAndEntries<Object, Geometry> deleted = root.delete(entries.get(0), false);
+        assertEquals(1, deleted.countDeleted());
+        List<Entry<Object, Geometry>> remaining = new ArrayList<>(deleted.entriesToAdd());
+        addEntries(deleted.node().get(), remaining);
+        assertEquals(Sets.newHashSet(entries.subList(1, 99)), Sets.newHashSet(remaining));
+        assertEquals(Sets.newHashSet(entries.subList(0, 99)), Sets.newHashSet(tree.entries()));
+    }
+
+    private static void addEntries(Node<Object, Geometry> node,
+            List<Entry<Object, Geometry>> list) {
+        if (node instanceof Leaf) {
+            list.addAll(((Leaf<Object, Geometry>) node).entries());
+        } else {
+            for (Node<Object, Geometry> child : ((NonLeaf<Object, Geometry>) node).children()) {
+                addEntries(child, list);
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentAddsKeepMbrsCoveringAndEntriesReachable() throws Exception {
+        final ConcurrentRTree<Object, Geometry> tree = RTree.star().maxChildren(4)
+                .createConcurrent();
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<Entry<Object, Geometry>>>> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final Random random = new Random(t);
+                writers.add(executor.submit(() -> {
+                    List<Entry<Object, Geometry>> entries = new ArrayList<>();
+                    for (int i = 0; i < 5000; i++) {
+                        double x = random.nextDouble() * 1000;
+                        double y = random.nextDouble() * 1000;
+                        Entry<Object, Geometry> entry = Entries.entry(new Object(),
+                                rectangle(x, y, x + 1, y + 1));
+                        tree.add(entry);
+                        entries.add(entry);
+                    }
+                    return entries;
+                }));
+            }
+            List<Entry<Object, Geometry>> entries = new ArrayList<>();
+            for (Future<List<Entry<Object, Geometry>>> writer : writers) {
+                entries.addAll(writer.get());
+            }
+            assertEquals(entries.size(), tree.size());
+            assertMbrsCover(tree.root());
+            for (Entry<Object, Geometry> entry : entries) {
+                assertTrue(
+                        Sets.newHashSet(tree.search(entry.geometry().mbr())).contains(entry));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void assertMbrsCover(Node<Object, Geometry> node) {
+        Rectangle mbr = node.geometry().mbr();
+        if (node instanceof Leaf) {
+            for (Entry<Object, Geometry> entry : ((Leaf<Object, Geometry>) node).entries()) {
+                assertTrue(GeometryUtil.contains(mbr, entry.geometry().mbr()));
+            }
+        } else {
+            for (Node<Object, Geometry> child : ((NonLeaf<Object, Geometry>) node).children()) {
+                assertTrue(GeometryUtil.contains(mbr, child.geometry().mbr()));
+                assertMbrsCover(child);
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentAddsAndDeletes() throws Exception {
+        final ConcurrentRTree<Object, Geometry> tree = RTree.star().maxChildren(6)
+                .createConcurrent();
+        final List<Entry<Object, Geometry>> stable = RTreeTest.createRandomEntries(1000);
+        for (Entry<Object, Geometry> entry : stable) {
+            tree.add(entry);
+        }
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        try {
+            final AtomicBoolean finished = new AtomicBoolean();
+            final AtomicBoolean missing = new AtomicBoolean();
+            // entries present throughout are always found by searches
+            Future<?> reader = executor.submit(() -> {
+                int i = 0;
+                while (!finished.get()) {
+                    Entry<Object, Geometry> entry = stable.get(i++ % stable.size());
+                    if (!Sets.newHashSet(tree.search(entry.geometry().mbr())).contains(entry)) {
+                        missing.set(true);
+                    }
+                }
+            });
+            List<Future<List<Entry<Object, Geometry>>>> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                writers.add(executor.submit(() -> {
+                    List<Entry<Object, Geometry>> entries = RTreeTest.createRandomEntries(2000);
+                    for (int i = 0; i < entries.size(); i++) {
+                        tree.add(entries.get(i));
+                        if (i % 2 == 1) {
+                            assertTrue(tree.delete(entries.get(i - 1)));
+                        }
+                    }
+                    return entries;
+                }));
+            }
+            List<Entry<Object, Geometry>> expected = new ArrayList<>(stable);
+            for (Future<List<Entry<Object, Geometry>>> writer : writers) {
+                List<Entry<Object, Geometry>> entries = writer.get();
+                for (int i = 1; i < entries.size(); i += 2) {
+                    expected.add(entries.get(i));
+                }
+            }
+            finished.set(true);
+            reader.get();
+            assertFalse(missing.get());
+            assertEquals(expected.size(), tree.size());
+            assertEquals(Sets.newHashSet(expected), Sets.newHashSet(tree.entries()));
+            assertMbrsCover(tree.root());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSearchSelectivityAfterChurn() throws Exception {
+        final ConcurrentRTree<Object, Geometry> tree = RTree.maxChildren(8).createConcurrent();
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<Entry<Object, Geometry>>>> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final Random random = new Random(t);
+                writers.add(executor.submit(() -> {
+                    List<Entry<Object, Geometry>> entries = new ArrayList<>();
+                    for (int i = 0; i < 500; i++) {
+                        entries.add(randomSquare(random));
+                        tree.add(entries.get(i));
+                    }
+                    // every entry drifts in small steps
+                    for (int i = 0; i < 30 * entries.size(); i++) {
+                        int j = random.nextInt(entries.size());
+                        assertTrue(tree.delete(entries.get(j)));
+                        entries.set(j, moved(entries.get(j), random));
+                        tree.add(entries.get(j));
+                    }
+                    return entries;
+                }));
+            }
+            ConcurrentRTree<Object, Geometry> fresh = RTree.maxChildren(8).createConcurrent();
+            for (Future<List<Entry<Object, Geometry>>> writer : writers) {
+                for (Entry<Object, Geometry> entry : writer.get()) {
+                    fresh.add(entry);
+                }
+            }
+            assertEquals(fresh.size(), tree.size());
+            assertMbrsCover(tree.root());
+            // without shrinking the non-leaf mbrs keep growing as entries drift
+            // so queries visit many more nodes than in a tree built afresh
+            Random random = new Random(99);
+            long visited = 0;
+            long visitedFresh = 0;
+            for (int i = 0; i < 200; i++) {
+                Rectangle r = randomSquare(random).geometry().mbr();
+                visited += visited(tree.root(), r);
+                visitedFresh += visited(fresh.root(), r);
+            }
+            assertTrue(visited + " > 1.2 * " + visitedFresh, visited <= 1.2 * visitedFresh);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static Entry<Object, Geometry> randomSquare(Random random) {
+        double x = random.nextDouble() * 1000;
+        double y = random.nextDouble() * 1000;
+        return Entries.entry(new Object(), rectangle(x, y, x + 1, y + 1));
+    }
+
+    private static Entry<Object, Geometry> moved(Entry<Object, Geometry> entry,
+            Random random) {
+        Rectangle r = entry.geometry().mbr();
+        double x = Math.min(999, Math.max(0, r.x1() + random.nextDouble() * 40 - 20));
+        double y = Math.min(999, Math.max(0, r.y1() + random.nextDouble() * 40 - 20));
+        return Entries.entry(entry.value(), rectangle(x, y, x + 1, y + 1));
+    }
+
+    // the number of non-leaf nodes a search for r goes through
+    private static int visited(Node<Object, Geometry> node, Rectangle r) {
+        int count = 0;
+        if (node instanceof NonLeaf) {
+            count++;
+            for (Node<Object, Geometry> child : ((NonLeaf<Object, Geometry>) node).children()) {
+                if (child.geometry().mbr().intersects(r)) {
+                    count += visited(child, r);
+                }
+            }
+        }
+        return count;
+    }
+
+}
@@ -20,12 +20,20 @@ import java.nio.channels.FileLock;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
 
 import org.junit.FixMethodOrder;
 import org.junit.Test;
@@ -33,14 +41,19 @@ import org.junit.runners.MethodSorters;
 
 import com.github.davidmoten.guavamini.Lists;
 import com.github.davidmoten.guavamini.Sets;
+import com.github.davidmoten.rtree2.geometry.Box;
 import com.github.davidmoten.rtree2.geometry.Circle;
 import com.github.davidmoten.rtree2.geometry.Geometries;
 import com.github.davidmoten.rtree2.geometry.Geometry;
 import com.github.davidmoten.rtree2.geometry.HasGeometry;
 import com.github.davidmoten.rtree2.geometry.Intersects;
+import com.github.davidmoten.rtree2.geometry.Line;
 import com.github.davidmoten.rtree2.geometry.Point;
+import com.github.davidmoten.rtree2.geometry.Polygon;
 import com.github.davidmoten.rtree2.geometry.Rectangle;
+import com.github.davidmoten.rtree2.geometry.TimeScale;
 import com.github.davidmoten.rtree2.internal.EntryDefault;
+import com.github.davidmoten.rtree2.internal.Util;
 
 import rx.Observable;
 import rx.functions.Func1;
@@ -462,6 +475,718 @@ public class RTreeTest {
         assertEquals(point(4, 4), list.get(3).geometry());
     }
 
+    @Test
+    public void testNearestMatchesBruteForce() {
+        List<Entry<Object, Geometry>> entries = createRandomEntries(1000);
+        RTree<Object, Geometry> tree = RTree.maxChildren(8).create(entries);
+        Rectangle r = r(500);
+        List<Entry<Object, Geometry>> expected = new ArrayList<Entry<Object, Geometry>>();
+        for (Entry<Object, Geometry> entry : entries) {
+            if (entry.geometry().distance(r) < 200) {
+                expected.add(entry);
+            }
+        }
+        expected.sort(Comparator.comparingDouble(entry -> entry.geometry().distance(r)));
+        expected = expected.subList(0, Math.min(10, expected.size()));
+        List<Entry<Object, Geometry>> list = Iterables.toList(tree.nearest(r, 200, 10));
+        assertEquals(expected.size(), list.size());
+        for (int i = 0; i < list.size(); i++) {
+            assertEquals(expected.get(i).geometry().distance(r), list.get(i).geometry().distance(r), PRECISION);
+        }
+    }
+
+    @Test
+    public void testNearestOnEmptyTree() {
+        RTree<Object, Geometry> tree = RTree.create();
+        assertTrue(Iterables.isEmpty(tree.nearest(point(1, 1), 10, 3)));
+    }
+
+    @Test
+    public void testNearestIteratorReturnsAllInOrder() {
+        RTree<Object, Geometry> tree = createRandomRTree(1000);
+        Rectangle r = r(500);
+        Iterator<Entry<Object, Geometry>> it = tree.nearestIterator(r);
+        double last = 0;
+        int count = 0;
+        while (it.hasNext()) {
+            double d = it.next().geometry().distance(r);
+            assertTrue(d >= last);
+            last = d;
+            count++;
+        }
+        assertEquals(1000, count);
+    }
+
+    @Test
+    public void testNearestIteratorToAPointStopsEarly() {
+        RTree<Object, Geometry> tree = RTree.create().add(1, point(1, 1)).add(2, point(2, 2)).add(3, point(3, 3));
+        Iterator<Entry<Object, Geometry>> it = tree.nearestIterator(point(2.9, 2.9));
+        assertEquals(3, it.next().value());
+        assertEquals(2, it.next().value());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testNearestIteratorOnEmptyTreeNextThrows() {
+        RTree<Object, Geometry> tree = RTree.create();
+        tree.nearestIterator(point(1, 1)).next();
+    }
+
+    @Test
+    public void testSearchStreamParallelMatchesSearch() {
+        RTree<Object, Geometry> tree = RTree.maxChildren(4).create(createRandomEntries(10000));
+        Rectangle r = rectangle(100, 200, 700, 600);
+        List<Entry<Object, Geometry>> expected = Iterables.toList(tree.search(r));
+        assertEquals(expected, tree.searchStream(r).collect(Collectors.toList()));
+        assertEquals(expected, tree.searchStream(r).parallel().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testEntriesStream() {
+        RTree<Object, Geometry> tree = createRandomRTree(1000);
+        assertEquals(1000, tree.entriesStream().parallel().count());
+        assertEquals(0, RTree.create().entriesStream().count());
+    }
+
+    @Test
+    public void testCountMatchesSearch() {
+        RTree<Object, Geometry> tree = createRandomRTree(1000);
+        Rectangle r = rectangle(100, 200, 700, 600);
+        assertEquals(Iterables.size(tree.search(r)), tree.count(r));
+        assertEquals(1000, tree.count(rectangle(-10, -10, 2000, 2000)));
+        assertEquals(1000, tree.root().get().size());
+    }
+
+    @Test
+    public void testCountWithIntersectsFunction() {
+        RTree<Object, Geometry> tree = RTree.maxChildren(4).create(createRandomEntries(1000));
+        Circle c = circle(500, 500, 200);
+        assertEquals(Iterables.size(tree.search(c)), tree.count(c, Intersects.geometryIntersectsCircle));
+    }
+
+    @Test
+    public void testCountOnEmptyTree() {
+        RTree<Object, Geometry> tree = RTree.create();
+        assertEquals(0, tree.count(r(1)));
+    }
+
+    @Test
+    public void testNodeSizeMaintainedThroughDelete() {
+        List<Entry<Object, Geometry>> entries = createRandomEntries(1000);
+        RTree<Object, Geometry> tree = RTree.maxChildren(4).<Object, Geometry>create().add(entries)
+                .delete(entries.subList(0, 300));
+        assertEquals(700, tree.size());
+        assertEquals(700, tree.root().get().size());
+    }
+
+    @Test
+    public void testForEachMatchesSearch() {
+        RTree<Object, Geometry> tree = RTree.maxChildren(4).create(createRandomEntries(1000));
+        Rectangle r = rectangle(100, 200, 700, 600);
+        List<Entry<Object, Geometry>> list = new ArrayList<Entry<Object, Geometry>>();
+        tree.forEach(r, list::add);
+        assertEquals(Iterables.toList(tree.search(r)), list);
+    }
+
+    @Test
+    public void testVisitStopsEarly() {
+        RTree<Object, Geometry> tree = createRandomRTree(1000);
+        Rectangle r = rectangle(-10, -10, 2000, 2000);
+        List<Entry<Object, Geometry>> list = new ArrayList<Entry<Object, Geometry>>();
+        boolean completed = tree.visit(r, entry -> {
+            list.add(entry);
+            return list.size() == 5 ? SearchVisitor.Action.STOP : SearchVisitor.Action.CONTINUE;
+        });
+        assertFalse(completed);
+        assertEquals(5, list.size());
+    }
+
+    @Test
+    public void testVisitSkipSubtree() {
+        RTree<Object, Geometry> tree = createRandomRTree(1000);
+        List<Entry<Object, Geometry>> list = new ArrayList<Entry<Object, Geometry>>();
+        boolean completed = tree.visit(rectangle(-10, -10, 2000, 2000), new SearchVisitor<Object, Geometry>() {
+
+            @Override
+            public Action visitNode(Node<Object, Geometry> node) {
+                return node instanceof Leaf ? Action.SKIP_SUBTREE : Action.CONTINUE;
+            }
+
+            @Override
+            public Action visitEntry(Entry<Object, Geometry> entry) {
+                list.add(entry);
+                return Action.CONTINUE;
+            }
+        });
+        assertTrue(completed);
+        assertTrue(list.isEmpty());
+    }
+
+    @Test
+    public void testVisitDisjointFromRootVisitsNothing() {
+        RTree<Object, Geometry> tree = createRandomRTree(1000);
+        List<Object> visited = new ArrayList<Object>();
+        boolean completed = tree.visit(rectangle(2000, 2000, 2010, 2010),
+                new SearchVisitor<Object, Geometry>() {
+
+                    @Override
+                    public Action visitNode(Node<Object, Geometry> node) {
+                        visited.add(node);
+                        return Action.CONTINUE;
+                    }
+
+                    @Override
+                    public Action visitEntry(Entry<Object, Geometry> entry) {
+                        visited.add(entry);
+                        return Action.CONTINUE;
+                    }
+                });
+        assertTrue(completed);
+        assertTrue(visited.isEmpty());
+    }
+
+    @Test
+    public void testSearchAllMatchesIndividualSearches() {
+        RTree<Object, Geometry> tree = RTree.maxChildren(4).create(createRandomEntries(1000));
+        List<Rectangle> rectangles = Arrays.asList(rectangle(100, 200, 300, 400), rectangle(250, 250, 700, 600),
+                rectangle(900, 900, 950, 1000), point(500, 500));
+        List<List<Entry<Object, Geometry>>> results = tree.searchAll(rectangles);
+        assertEquals(rectangles.size(), results.size());
+        for (int i = 0; i < rectangles.size(); i++) {
+            assertEquals(Iterables.toList(tree.search(rectangles.get(i))), results.get(i));
+        }
+    }
+
+    @Test
+    public void testSearchAllOnEmptyTree() {
+        RTree<Object, Geometry> tree = RTree.create();
+        List<List<Entry<Object, Geometry>>> results = tree.searchAll(Arrays.asList(r(1), r(2)));
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).isEmpty());
+    }
+
+    @Test
+    public void testJoinMatchesNestedLoop() {
+        List<Entry<Object, Geometry>> entries1 = createRandomEntries(500);
+        List<Entry<Object, Geometry>> entries2 = createRandomEntries(300);
+        RTree<Object, Geometry> tree1 = RTree.maxChildren(4).create(entries1);
+        RTree<Object, Geometry> tree2 = RTree.star().maxChildren(6).<Object, Geometry>create().add(entries2);
+        int expected = 0;
+        for (Entry<Object, Geometry> a : entries1) {
+            for (Entry<Object, Geometry> b : entries2) {
+                if (a.geometry().intersects(b.geometry().mbr())) {
+                    expected++;
+                }
+            }
+        }
+        List<Entry<Object, Geometry>> list = new ArrayList<Entry<Object, Geometry>>();
+        tree1.join(tree2, (a, b) -> a.intersects(b.mbr()), (a, b) -> list.add(a));
+        assertEquals(expected, list.size());
+    }
+
+    @Test
+    public void testJoinWithEmptyTree() {
+        RTree<Object, Geometry> tree = createRandomRTree(10);
+        List<Entry<Object, Geometry>> list = new ArrayList<Entry<Object, Geometry>>();
+        tree.join(RTree.<Object, Geometry>create(), (a, b) -> true, (a, b) -> list.add(a));
+        assertTrue(list.isEmpty());
+    }
+
+    @Test
+    public void testWithinDistanceJoin() {
+        RTree<Object, Point> tree1 = RTree.<Object, Point>create().add(1, point(0, 0)).add(2, point(10, 10));
+        RTree<Object, Point> tree2 = RTree.<Object, Point>create().add(3, point(0, 1)).add(4, point(10, 12))
+                .add(5, point(50, 50));
+        List<String> list = new ArrayList<String>();
+        tree1.withinDistanceJoin(tree2, 1.5, (a, b) -> list.add(a.value() + ":" + b.value()));
+        assertEquals(Arrays.asList("1:3"), list);
+    }
+
+    @Test
+    public void testWithinDistanceJoinUsesGeometryDistance() {
+        // mbrs of each pair are within 1 of the other geometry but the geometries
+        // are further apart
+        RTree<Object, Geometry> tree1 = RTree.<Object, Geometry>create().add(1, circle(0, 0, 1))
+                .add(2, line(0, 0, 10, 10)).add(3, Geometries.polygon(20, 0, 30, 0, 20, 10));
+        RTree<Object, Geometry> tree2 = RTree.<Object, Geometry>create().add(4, point(1.5, -1.5))
+                .add(5, point(9, 1)).add(6, line(29, 9, 30, 8)).add(7, circle(1.2, 0, 0.5));
+        List<String> list = new ArrayList<String>();
+        tree1.withinDistanceJoin(tree2, 1, (a, b) -> list.add(a.value() + ":" + b.value()));
+        List<String> reversed = new ArrayList<String>();
+        tree2.withinDistanceJoin(tree1, 1, (a, b) -> reversed.add(b.value() + ":" + a.value()));
+        assertEquals(Sets.newHashSet("1:7", "2:7"), Sets.newHashSet(list));
+        assertEquals(Sets.newHashSet(list), Sets.newHashSet(reversed));
+    }
+
+    @Test
+    public void testWithinDistanceSelfJoinReportsEachPairOnce() {
+        List<Entry<Object, Geometry>> entries = createRandomEntries(500);
+        RTree<Object, Geometry> tree = RTree.maxChildren(4).create(entries);
+        int expected = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            for (int j = i + 1; j < entries.size(); j++) {
+                if (entries.get(i).geometry().distance(entries.get(j).geometry().mbr()) < 20) {
+                    expected++;
+                }
+            }
+        }
+        Set<Set<Entry<Object, Geometry>>> pairs = new HashSet<Set<Entry<Object, Geometry>>>();
+        List<Entry<Object, Geometry>> list = new ArrayList<Entry<Object, Geometry>>();
+        tree.withinDistanceSelfJoin(20, (a, b) -> {
+            list.add(a);
+            assertTrue(a != b);
+            pairs.add(new HashSet<Entry<Object, Geometry>>(Arrays.asList(a, b)));
+        });
+        assertEquals(expected, list.size());
+        assertEquals(expected, pairs.size());
+    }
+
+    @Test
+    public void testNearestJoinMatchesNearest() {
+        RTree<Object, Geometry> tree1 = RTree.maxChildren(4).create(createRandomEntries(300));
+        RTree<Object, Geometry> tree2 = createRandomRTree(1000);
+        List<Entry<Object, Geometry>> found = new ArrayList<Entry<Object, Geometry>>();
+        tree1.nearestJoin(tree2, 100, 3, (entry, list) -> {
+            found.add(entry);
+            Rectangle r = entry.geometry().mbr();
+            List<Entry<Object, Geometry>> expected = Iterables.toList(tree2.nearest(r, 100, 3));
+            assertEquals(expected.size(), list.size());
+            for (int i = 0; i < list.size(); i++) {
+                assertEquals(expected.get(i).geometry().distance(r), list.get(i).geometry().distance(r), PRECISION);
+            }
+        });
+        assertEquals(300, found.size());
+    }
+
+    @Test
+    public void testNearestJoinWithEmptyTree() {
+        RTree<Object, Geometry> tree = createRandomRTree(10);
+        List<Entry<Object, Geometry>> found = new ArrayList<Entry<Object, Geometry>>();
+        tree.nearestJoin(RTree.<Object, Geometry>create(), 100, 3, (entry, list) -> {
+            assertTrue(list.isEmpty());
+            found.add(entry);
+        });
+        assertEquals(10, found.size());
+    }
+
+    @Test
+    public void testReverseNearest() {
+        RTree<Object, Point> tree = RTree.<Object, Point>create().add(1, point(0, 0)).add(2, point(1, 0))
+                .add(3, point(10, 0)).add(4, point(20, 0));
+        Set<Object> values = new HashSet<Object>();
+        for (Entry<Object, Point> entry : tree.reverseNearest(point(12, 0), 1)) {
+            values.add(entry.value());
+        }
+        // 3 is nearer to 12 than to 1, 4 is nearer to 12 than to 3
+        assertEquals(Sets.newHashSet(3, 4), values);
+    }
+
+    @Test
+    public void testReverseNearestMatchesBruteForce() {
+        List<Entry<Object, Geometry>> entries = createRandomEntries(500);
+        RTree<Object, Geometry> tree = RTree.maxChildren(4).create(entries);
+        Point p = point(500, 500);
+        int k = 3;
+        Set<Entry<Object, Geometry>> expected = new HashSet<Entry<Object, Geometry>>();
+        for (Entry<Object, Geometry> entry : entries) {
+            Rectangle r = entry.geometry().mbr();
+            double d = p.distance(r);
+            int closer = 0;
+            for (Entry<Object, Geometry> other : entries) {
+                if (other != entry && other.geometry().distance(r) < d) {
+                    closer++;
+                }
+            }
+            if (closer < k) {
+                expected.add(entry);
+            }
+        }
+        assertEquals(expected, new HashSet<Entry<Object, Geometry>>(Iterables.toList(tree.reverseNearest(p, k))));
+    }
+
+    @Test
+    public void testSearchCircleAndLineMatchMbrSearchRefinedByIntersects() {
+        RTree<Object, Geometry> tree = RTree.maxChildren(4).create(createRandomEntries(1000));
+        Circle c = circle(500, 500, 300);
+        assertEquals(Iterables.toList(Iterables.filter(tree.search(c.mbr()),
+                entry -> Intersects.geometryIntersectsCircle.test(entry.geometry(), c))),
+                Iterables.toList(tree.search(c)));
+        Line line = line(0, 0, 1000, 1000);
+        assertEquals(Iterables.toList(Iterables.filter(tree.search(line.mbr()),
+                entry -> Intersects.geometryIntersectsLine.test(entry.geometry(), line))),
+                Iterables.toList(tree.search(line)));
+    }
+
+    @Test
+    public void testSearchTreeOfPolygons() {
+        Random random = new Random(13);
+        List<Entry<Integer, Geometry>> entries = new ArrayList<Entry<Integer, Geometry>>();
+        for (int i = 0; i < 500; i++) {
+            double x = random.nextDouble() * 1000;
+            double y = random.nextDouble() * 1000;
+            entries.add(entry(i, Geometries.polygon(x, y, x + random.nextDouble() * 30,
+                    y + random.nextDouble() * 10, x + random.nextDouble() * 10,
+                    y + random.nextDouble() * 30)));
+        }
+        RTree<Integer, Geometry> tree = RTree.maxChildren(4).create(entries);
+        Polygon polygon = Geometries.polygon(100, 100, 900, 200, 500, 500, 800, 900, 150, 700);
+        Set<Entry<Integer, Geometry>> expected = entries.stream()
+                .filter(e -> ((Polygon) e.geometry()).intersects(polygon))
+                .collect(Collectors.toSet());
+        assertFalse(expected.isEmpty());
+        assertTrue(expected.size() < entries.size());
+        assertEquals(expected, Sets.newHashSet(tree.search(polygon)));
+        Rectangle r = rectangle(200.0, 300.0, 500.0, 400.0);
+        assertEquals(
+                entries.stream().filter(e -> e.geometry().intersects(r))
+                        .collect(Collectors.toSet()),
+                Sets.newHashSet(tree.search(r)));
+        Circle c = circle(500, 500, 100);
+        assertEquals(
+                entries.stream().filter(e -> ((Polygon) e.geometry()).intersects(c))
+                        .collect(Collectors.toSet()),
+                Sets.newHashSet(tree.search(c)));
+        Line line = line(0, 0, 1000, 900);
+        assertEquals(
+                entries.stream().filter(e -> ((Polygon) e.geometry()).intersects(line))
+                        .collect(Collectors.toSet()),
+                Sets.newHashSet(tree.search(line)));
+    }
+
+    @Test
+    public void testSearchPolygonMatchesMbrSearchRefinedByIntersects() {
+        RTree<Object, Geometry> tree = RTree.maxChildren(4).create(createRandomEntries(1000));
+        Polygon polygon = Geometries.polygon(100, 100, 900, 200, 500, 500, 800, 900, 150, 700);
+        List<Entry<Object, Geometry>> expected = Iterables.toList(Iterables.filter(
+                tree.search(polygon.mbr()),
+                entry -> Intersects.geometryIntersectsPolygon.test(entry.geometry(), polygon)));
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, Iterables.toList(tree.search(polygon)));
+    }
+
+    @Test
+    public void testAggregateMatchesSearch() {
+        List<Entry<Integer, Point>> entries = new ArrayList<Entry<Integer, Point>>();
+        for (int i = 0; i < 1000; i++) {
+            entries.add(entry(i, point(Math.random() * 1000, Math.random() * 1000)));
+        }
+        Monoid<Integer, Long> sum = Monoid.create(0L, v -> (long) v, Long::sum);
+        Monoid<Integer, String> concat = Monoid.create("", v -> v + ",", String::concat);
+        // summaries are maintained for sum but not for concat
+        RTree<Integer, Point> tree = RTree.summary(sum).maxChildren(4).create(entries);
+        for (int i = 0; i < 20; i++) {
+            Rectangle r = rectangle(i * 20, i * 30, i * 20 + 400, i * 30 + 300);
+            long expectedSum = 0;
+            StringBuilder expectedConcat = new StringBuilder();
+            for (Entry<Integer, Point> entry : tree.search(r)) {
+                expectedSum += entry.value();
+                expectedConcat.append(entry.value()).append(",");
+            }
+            assertEquals(expectedSum, (long) tree.aggregate(r, sum));
+            assertEquals(expectedConcat.toString(), tree.aggregate(r, concat));
+            // summaries of the new nodes must reflect the change
+            tree = tree.delete(entries.get(i)).add(entry(1000 + i, point(i * 40 + 1, i * 40 + 1)));
+            assertEquals(sumOfValues(tree.entries()), Util.summaries(tree.root().get())[0]);
+        }
+        assertEquals(tree.size(), (long) tree.aggregate(rectangle(0, 0, 1000, 1000),
+                Monoid.<Integer, Long> create(0L, v -> 1L, Long::sum)));
+    }
+
+    @Test
+    public void testSummaryMaintainedByBatchOperations() {
+        Monoid<Integer, Long> sum = Monoid.create(0L, v -> (long) v, Long::sum);
+        List<Entry<Integer, Point>> entries = new ArrayList<Entry<Integer, Point>>();
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            entries.add(entry(i, point(random.nextDouble() * 1000, random.nextDouble() * 1000)));
+        }
+        RTree<Integer, Point> tree = RTree.summary(sum).maxChildren(4).<Integer, Point> create()
+                .addBatch(entries).deleteBatch(entries.subList(0, 300));
+        assertEquals(sumOfValues(tree.entries()), Util.summaries(tree.root().get())[0]);
+        assertEquals((long) sumOfValues(tree.entries()),
+                (long) tree.aggregate(rectangle(0, 0, 1000, 1000), sum));
+    }
+
+    @Test
+    public void testNoSummaryWithoutMonoid() {
+        assertEquals(0, Util.summaries(createRandomRTree(100).root().get()).length);
+    }
+
+    private static Long sumOfValues(Iterable<Entry<Integer, Point>> entries) {
+        long sum = 0;
+        for (Entry<Integer, Point> entry : entries) {
+            sum += entry.value();
+        }
+        return sum;
+    }
+
+    @Test
+    public void testAggregateOfEmptyTreeIsIdentity() {
+        assertEquals(0L, (long) RTree.<Integer, Point> create().aggregate(r(1),
+                Monoid.<Integer, Long> create(0L, v -> (long) v, Long::sum)));
+    }
+
+    @Test
+    public void testTopKMatchesSortedSearch() {
+        List<Entry<Double, Point>> entries = new ArrayList<Entry<Double, Point>>();
+        for (int i = 0; i < 1000; i++) {
+            entries.add(entry(Math.random(), point(Math.random() * 1000, Math.random() * 1000)));
+        }
+        ToDoubleFunction<Double> score = v -> v;
+        RTree<Double, Point> tree = RTree.summary(Monoid.max(score)).maxChildren(4)
+                .create(entries);
+        // the same scores without maintained summaries
+        RTree<Double, Point> tree2 = RTree.maxChildren(4)
+                .create(new ArrayList<Entry<Double, Point>>(entries));
+        for (int i = 0; i < 20; i++) {
+            Rectangle r = rectangle(i * 20, i * 30, i * 20 + 400, i * 30 + 300);
+            List<Double> expected = Iterables.toList(tree.search(r)).stream()
+                    .map(Entry::value).sorted(Comparator.reverseOrder()).limit(i + 1)
+                    .collect(Collectors.toList());
+            assertEquals(expected, tree.topK(r, score, i + 1).stream().map(Entry::value)
+                    .collect(Collectors.toList()));
+            assertEquals(expected, tree2.topK(r, score, i + 1).stream().map(Entry::value)
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void testTopKOfEmptyTree() {
+        assertTrue(RTree.<Double, Point> create().topK(r(1), v -> v, 3).isEmpty());
+    }
+
+    @Test
+    public void testTreeSummarizedForAggregateAndTopK() {
+        List<Entry<Integer, Point>> entries = new ArrayList<Entry<Integer, Point>>();
+        Random random = new Random(7);
+        for (int i = 0; i < 1000; i++) {
+            entries.add(entry(i, point(random.nextDouble() * 1000, random.nextDouble() * 1000)));
+        }
+        AtomicInteger scored = new AtomicInteger();
+        ToDoubleFunction<Integer> score = v -> {
+            scored.incrementAndGet();
+            return v;
+        };
+        Monoid<Integer, Long> sum = Monoid.create(0L, v -> (long) v, Long::sum);
+        // max is configured through a different but equal monoid instance
+        RTree<Integer, Point> tree = RTree.summary(sum, Monoid.max(score)).maxChildren(4)
+                .create(entries);
+        assertEquals(Monoid.max(score), Monoid.max(score));
+        assertEquals(2, Util.summaries(tree.root().get()).length);
+        assertEquals(sumOfValues(entries), Util.summaries(tree.root().get())[0]);
+        assertEquals(999.0, Util.summaries(tree.root().get())[1]);
+        Rectangle r = rectangle(0, 0, 1000, 1000);
+        assertEquals(sumOfValues(entries), tree.aggregate(r, sum));
+        scored.set(0);
+        assertEquals(Arrays.asList(999, 998, 997), tree.topK(r, score, 3).stream()
+                .map(Entry::value).collect(Collectors.toList()));
+        // best-first search scores only the entries of the leaves it expands
+        assertTrue(scored.get() < 100);
+        scored.set(0);
+        assertEquals(Arrays.asList(999, 998, 997), tree.topK(r, v -> v, 3).stream()
+                .map(Entry::value).collect(Collectors.toList()));
+        // an unmatched score function falls back to scoring every entry
+        RTree<Integer, Point> tree2 = RTree.summary(sum).maxChildren(4).create(entries);
+        assertEquals(Arrays.asList(999, 998, 997), tree2.topK(r, score, 3).stream()
+                .map(Entry::value).collect(Collectors.toList()));
+        assertEquals(1000, scored.get());
+    }
+
+    @Test
+    public void testThreeDimensionalSearchAndNearest() {
+        List<Entry<Integer, Box>> entries = new ArrayList<Entry<Integer, Box>>();
+        for (int i = 0; i < 1000; i++) {
+            double x = Math.random() * 100;
+            double y = Math.random() * 100;
+            double z = Math.random() * 100;
+            entries.add(entry(i, Geometries.box(x, y, z, x + 1, y + 1, z + 1)));
+        }
+        List<RTree<Integer, Box>> trees = Arrays.asList(
+                RTree.maxChildren(4).<Integer, Box> create().add(entries),
+                RTree.star().maxChildren(4).<Integer, Box> create().add(entries),
+                RTree.maxChildren(4).create(new ArrayList<Entry<Integer, Box>>(entries)));
+        Box query = Geometries.box(20.0, 20.0, 40.0, 60.0, 60.0, 50.0);
+        Set<Entry<Integer, Box>> expected = entries.stream()
+                .filter(e -> e.geometry().intersects(query)).collect(Collectors.toSet());
+        Box p = Geometries.point(50.0, 50.0, 50.0);
+        List<Double> expectedDistances = entries.stream().map(e -> e.geometry().distance(p))
+                .sorted().limit(5).collect(Collectors.toList());
+        for (RTree<Integer, Box> tree : trees) {
+            assertEquals(expected, Sets.newHashSet(tree.search(query)));
+            assertEquals(expected.size(), tree.count(query));
+            List<Entry<Integer, Box>> nearest = Iterables
+                    .toList(tree.nearest(p, Double.MAX_VALUE, 5));
+            assertEquals(expectedDistances, nearest.stream().map(e -> e.geometry().distance(p))
+                    .collect(Collectors.toList()));
+            assertEquals(3, tree.root().get().geometry().mbr().dimensions());
+        }
+    }
+
+    @Test
+    public void testSpaceTimeSearch() {
+        long start = 1500000000000L;
+        // one day of data maps to 100 units, the same range as x and y
+        TimeScale scale = TimeScale.create(start, 864000);
+        Random random = new Random(17);
+        List<Entry<Integer, Box>> entries = new ArrayList<Entry<Integer, Box>>();
+        Map<Integer, Long> times = new HashMap<Integer, Long>();
+        for (int i = 0; i < 1000; i++) {
+            long time = start + (long) (random.nextDouble() * 86400000L);
+            times.put(i, time);
+            entries.add(entry(i, Geometries.spaceTime(random.nextDouble() * 100,
+                    random.nextDouble() * 100, time, scale)));
+        }
+        RTree<Integer, Box> tree = RTree.star().maxChildren(4).<Integer, Box> create().add(entries);
+        Rectangle mbr = tree.mbr().get();
+        assertTrue(mbr.lower(2) >= 0 && mbr.upper(2) <= 100);
+        Rectangle region = rectangle(10.0, 10.0, 60.0, 60.0);
+        long from = start + 3600000L;
+        long to = start + 7200000L;
+        Set<Entry<Integer, Box>> expected = entries.stream()
+                .filter(e -> region.contains(e.geometry().x1(), e.geometry().y1())
+                        && times.get(e.value()) >= from && times.get(e.value()) <= to)
+                .collect(Collectors.toSet());
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, Sets.newHashSet(tree.search(region, from, to, scale)));
+        assertEquals(expected.size(), tree.count(region, from, to, scale));
+        assertEquals(from, scale.time(scale.ordinate(from)));
+    }
+
+    @Test
+    public void testSampleIsDistinctSubsetOfSearch() {
+        RTree<Object, Geometry> tree = RTree.maxChildren(4).create(createRandomEntries(1000));
+        Rectangle r = rectangle(100.0, 100.0, 600.0, 700.0);
+        Set<Entry<Object, Geometry>> matches = Sets.newHashSet(tree.search(r));
+        Random random = new Random(1);
+        for (int i = 0; i < 20; i++) {
+            List<Entry<Object, Geometry>> sample = tree.sample(r, 30, random);
+            assertEquals(30, sample.size());
+            assertEquals(30, new HashSet<Entry<Object, Geometry>>(sample).size());
+            assertTrue(matches.containsAll(sample));
+        }
+        assertEquals(matches, new HashSet<Entry<Object, Geometry>>(
+                tree.sample(r, matches.size() + 10, random)));
+        assertTrue(tree.sample(rectangle(-10.0, -10.0, -5.0, -5.0), 10, random).isEmpty());
+    }
+
+    @Test
+    public void testSearchPagesMatchSearch() {
+        RTree<Object, Geometry> tree = RTree.maxChildren(4).create(createRandomEntries(1000));
+        Rectangle r = rectangle(100.0, 100.0, 600.0, 700.0);
+        List<Entry<Object, Geometry>> list = new ArrayList<Entry<Object, Geometry>>();
+        SearchPage<Object, Geometry> page = tree.searchPage(r, 7);
+        while (page.cursor().isPresent()) {
+            assertEquals(7, page.entries().size());
+            list.addAll(page.entries());
+            SearchCursor cursor = SearchCursor.parse(page.cursor().get().token());
+            page = tree.searchPage(r, cursor, 7);
+        }
+        list.addAll(page.entries());
+        assertEquals(Iterables.toList(tree.search(r)), list);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSearchPageCursorFromAnotherTreeRejected() {
+        RTree<Object, Geometry> tree = RTree.maxChildren(4).create(createRandomEntries(100));
+        Rectangle r = rectangle(0.0, 0.0, 1000.0, 1000.0);
+        SearchCursor cursor = tree.searchPage(r, 2).cursor().get();
+        tree.add(randomEntry()).searchPage(r, cursor, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSearchPageCursorForAnotherRectangleRejected() {
+        RTree<Object, Geometry> tree = RTree.maxChildren(4).create(createRandomEntries(100));
+        SearchCursor cursor = tree.searchPage(rectangle(0.0, 0.0, 1000.0, 1000.0), 2).cursor()
+                .get();
+        tree.searchPage(rectangle(0.0, 0.0, 500.0, 1000.0), cursor, 2);
+    }
+
+    @Test
+    public void testHistogramMatchesBinningSearchResults() {
+        RTree<Object, Geometry> tree = RTree.maxChildren(4).create(createRandomEntries(1000));
+        Rectangle view = rectangle(100.0, 50.0, 900.0, 650.0);
+        int cols = 8;
+        int rows = 6;
+        int[] expected = new int[cols * rows];
+        for (Entry<Object, Geometry> entry : tree.search(view)) {
+            Rectangle mbr = entry.geometry().mbr();
+            double x = (mbr.x1() + mbr.x2()) / 2;
+            double y = (mbr.y1() + mbr.y2()) / 2;
+            if (view.contains(x, y)) {
+                expected[(int) ((y - 50) / 100) * cols + (int) ((x - 100) / 100)]++;
+            }
+        }
+        assertTrue(Arrays.equals(expected, tree.histogram(view, cols, rows)));
+        assertTrue(Arrays.equals(new int[4],
+                RTree.<Object, Geometry> create().histogram(view, 2, 2)));
+    }
+
+    @Test
+    public void testAnyMatchesSearch() {
+        RTree<Object, Geometry> tree = RTree.maxChildren(4).create(createRandomEntries(200));
+        for (int i = 0; i < 1000; i++) {
+            double x = Math.random() * 1100 - 50;
+            double y = Math.random() * 1100 - 50;
+            Rectangle r = rectangle(x, y, x + i % 20, y + i % 20);
+            assertEquals(tree.search(r).iterator().hasNext(), tree.any(r));
+            Circle c = circle(x, y, i % 20);
+            assertEquals(tree.search(c).iterator().hasNext(),
+                    tree.any(c, Intersects.geometryIntersectsCircle));
+        }
+        assertFalse(RTree.create().any(r(1)));
+    }
+
+    @Test
+    public void testAddBatchMatchesAdd() {
+        for (int n : new int[] { 0, 3, 100, 2000 }) {
+            for (int m : new int[] { 0, 2, 50, 3000 }) {
+                List<Entry<Object, Geometry>> entries = createRandomEntries(n);
+                List<Entry<Object, Geometry>> batch = createRandomEntries(m);
+                RTree<Object, Geometry> tree = RTree.star().maxChildren(6).create().add(entries);
+                RTree<Object, Geometry> expected = tree.add(batch);
+                RTree<Object, Geometry> actual = tree.addBatch(batch);
+                assertEquals(n + m, actual.size());
+                assertEquals(Sets.newHashSet(expected.entries()),
+                        Sets.newHashSet(actual.entries()));
+                for (int i = 0; i < 20; i++) {
+                    double x = Math.random() * 1000;
+                    double y = Math.random() * 1000;
+                    Rectangle r = rectangle(x, y, x + 50, y + 50);
+                    assertEquals(Sets.newHashSet(expected.search(r)),
+                            Sets.newHashSet(actual.search(r)));
+                }
+                if (m > 0) {
+                    assertEquals(n + m - 1, actual.delete(batch.get(0)).size());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDeleteBatchMatchesDelete() {
+        for (int n : new int[] { 0, 3, 100, 2000 }) {
+            for (boolean all : new boolean[] { false, true }) {
+                List<Entry<Object, Geometry>> entries = createRandomEntries(n);
+                // add some duplicates
+                for (int i = 0; i < n / 10; i++) {
+                    entries.add(entries.get(i));
+                }
+                RTree<Object, Geometry> tree = RTree.maxChildren(4).create().add(entries);
+                List<Entry<Object, Geometry>> batch = new ArrayList<Entry<Object, Geometry>>();
+                for (int i = 0; i < entries.size(); i += 3) {
+                    batch.add(entries.get(i));
+                }
+                batch.add(randomEntry());
+                RTree<Object, Geometry> expected = tree.delete(batch, all);
+                RTree<Object, Geometry> actual = tree.deleteBatch(batch, all);
+                assertEquals(expected.size(), actual.size());
+                assertEquals(Lists.newArrayList(expected.entries()).size(),
+                        Lists.newArrayList(actual.entries()).size());
+                assertEquals(Sets.newHashSet(expected.entries()),
+                        Sets.newHashSet(actual.entries()));
+            }
+        }
+    }
+
     @Test
     public void testVisualizer() {
         List<Entry<Object, Geometry>> entries = createRandomEntries(1000);
@@ -0,0 +1,51 @@
+package com.github.davidmoten.rtree2;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.github.davidmoten.rtree2.geometry.Geometries;
+
+public class SearchCursorTest {
+
+    @Test
+    public void testTokenRoundTrip() {
+        SearchCursor cursor = new SearchCursor(123456789L, Geometries.rectangle(-1.5, 0, 10, 2e9),
+                new int[] { 0, 3, 11, 40 });
+        assertEquals(cursor, SearchCursor.parse(cursor.token()));
+        assertEquals(cursor.hashCode(), SearchCursor.parse(cursor.token()).hashCode());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseWithoutPath() {
+        SearchCursor.parse("abc");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseInvalid() {
+        SearchCursor.parse("abc.1_2_3_4.1.!");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseNegative() {
+        SearchCursor.parse("abc.1_2_3_4.-1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseWrongNumberOfOrdinates() {
+        SearchCursor.parse("abc.1_2_3.1");
+    }
+
+    @Test
+    public void testCheckForSameTreeAndRectangle() {
+        SearchCursor.parse(new SearchCursor(7, Geometries.rectangle(1, 2, 3, 4), new int[] { 1 })
+                .token()).checkFor(7, Geometries.rectangle(1, 2, 3, 4));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCheckForAnotherRectangle() {
+        new SearchCursor(7, Geometries.rectangle(1, 2, 3, 4), new int[] { 1 }).checkFor(7,
+                Geometries.rectangle(1, 2, 3, 5));
+    }
+
+}
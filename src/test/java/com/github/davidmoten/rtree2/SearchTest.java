@@ -1,8 +1,18 @@
 package com.github.davidmoten.rtree2;
 
+import static com.github.davidmoten.rtree2.geometry.Geometries.rectangle;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
 import org.junit.Test;
 
 import com.github.davidmoten.junit.Asserts;
+import com.github.davidmoten.rtree2.geometry.Geometry;
+import com.github.davidmoten.rtree2.geometry.Rectangle;
+import com.github.davidmoten.rtree2.geometry.internal.GeometryUtil;
 
 public class SearchTest {
     
@@ -11,4 +21,21 @@ public class SearchTest {
         Asserts.assertIsUtilityClass(Search.class);
     }
 
+    @Test
+    public void testCoveredNodesSkipConditionTests() {
+        RTree<Object, Geometry> tree = RTree.maxChildren(4).create(RTreeTest.createRandomEntries(1000));
+        Rectangle r = rectangle(-10, -10, 2000, 2000);
+        AtomicInteger calls = new AtomicInteger();
+        Predicate<Geometry> condition = g -> {
+            calls.incrementAndGet();
+            return g.intersects(r);
+        };
+        Iterable<Entry<Object, Geometry>> entries = Search.search(tree.root().get(), condition,
+                g -> GeometryUtil.contains(r, g.mbr()));
+        assertEquals(1000, Iterables.size(entries));
+        assertEquals(0, calls.get());
+        assertEquals(1000, Iterables.size(Search.search(tree.root().get(), condition)));
+        assertTrue(calls.get() > 1000);
+    }
+
 }
@@ -0,0 +1,84 @@
+package com.github.davidmoten.rtree2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.github.davidmoten.guavamini.Lists;
+import com.github.davidmoten.guavamini.Sets;
+import com.github.davidmoten.rtree2.geometry.Geometry;
+import com.github.davidmoten.rtree2.internal.LeafDefault;
+import com.github.davidmoten.rtree2.internal.NonLeafDefault;
+
+public class TransientRTreeTest {
+
+    @Test
+    public void testEditsMatchPersistentEdits() {
+        List<Entry<Object, Geometry>> entries = RTreeTest.createRandomEntries(500);
+        RTree<Object, Geometry> tree = RTree.maxChildren(4).create(entries.subList(0, 100));
+        RTree<Object, Geometry> expected = tree;
+        TransientRTree<Object, Geometry> t = tree.asTransient();
+        for (int i = 100; i < entries.size(); i++) {
+            expected = expected.add(entries.get(i));
+            t.add(entries.get(i));
+            if (i % 3 == 0) {
+                expected = expected.delete(entries.get(i / 2));
+                t.delete(entries.get(i / 2));
+            }
+            assertEquals(expected.size(), t.size());
+        }
+        RTree<Object, Geometry> actual = t.persistent();
+        assertEquals(expected.size(), actual.size());
+        assertEquals(Sets.newHashSet(expected.entries()), Sets.newHashSet(actual.entries()));
+        assertEquals(expected.size(), Lists.newArrayList(actual.entries()).size());
+        // the original tree is unchanged
+        assertEquals(100, tree.size());
+        assertEquals(Sets.newHashSet(entries.subList(0, 100)), Sets.newHashSet(tree.entries()));
+    }
+
+    @Test
+    public void testTransientOfPersistedTransientDoesNotModifyIt() {
+        List<Entry<Object, Geometry>> entries = RTreeTest.createRandomEntries(200);
+        RTree<Object, Geometry> tree = RTree.star().maxChildren(5).create().asTransient()
+                .add(entries.subList(0, 100)).persistent();
+        RTree<Object, Geometry> tree2 = tree.asTransient().add(entries.subList(100, 200))
+                .delete(entries.subList(0, 50)).persistent();
+        assertEquals(100, tree.size());
+        assertEquals(Sets.newHashSet(entries.subList(0, 100)), Sets.newHashSet(tree.entries()));
+        assertEquals(150, tree2.size());
+        assertEquals(Sets.newHashSet(entries.subList(50, 200)),
+                Sets.newHashSet(tree2.entries()));
+    }
+
+    @Test
+    public void testPersistentHasNoTransientNodes() {
+        List<Entry<Object, Geometry>> entries = RTreeTest.createRandomEntries(300);
+        RTree<Object, Geometry> tree = RTree.maxChildren(4).create(entries.subList(0, 100))
+                .asTransient().add(entries.subList(100, 300)).delete(entries.subList(0, 30))
+                .persistent();
+        assertEquals(270, tree.size());
+        assertNoTransientNodes(tree.root().get());
+    }
+
+    private static void assertNoTransientNodes(Node<Object, Geometry> node) {
+        if (node instanceof Leaf) {
+            assertTrue(node instanceof LeafDefault);
+        } else {
+            assertTrue(node instanceof NonLeafDefault);
+            for (Node<Object, Geometry> child : ((NonLeaf<Object, Geometry>) node).children()) {
+                assertNoTransientNodes(child);
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUseAfterPersistentThrows() {
+        TransientRTree<Object, Geometry> t = RTree.create().asTransient();
+        t.persistent();
+        t.add(RTreeTest.randomEntry());
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.github.davidmoten.rtree2.geometry;
+
+import static com.github.davidmoten.rtree2.geometry.Geometries.box;
+import static com.github.davidmoten.rtree2.geometry.Geometries.point;
+import static com.github.davidmoten.rtree2.geometry.Geometries.rectangle;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public final class BoxTest {
+
+    private static final double PRECISION = 0.00001;
+
+    @Test
+    public void testDimensionsAndBounds() {
+        Box b = box(1.0, 2.0, 3.0, 4.0, 6.0, 8.0);
+        assertEquals(3, b.dimensions());
+        assertEquals(1, b.x1(), PRECISION);
+        assertEquals(6, b.y2(), PRECISION);
+        assertEquals(3, b.lower(2), PRECISION);
+        assertEquals(8, b.upper(2), PRECISION);
+        assertEquals(3 * 4 * 5, b.area(), PRECISION);
+        assertEquals(4 * (3 + 4 + 5), b.perimeter(), PRECISION);
+    }
+
+    @Test
+    public void testRectangleBounds() {
+        Rectangle r = rectangle(1.0, 2.0, 3.0, 4.0);
+        assertEquals(2, r.dimensions());
+        assertEquals(1, r.lower(0), PRECISION);
+        assertEquals(4, r.upper(1), PRECISION);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testRectangleHasNoThirdDimension() {
+        rectangle(1.0, 2.0, 3.0, 4.0).lower(2);
+    }
+
+    @Test
+    public void testIntersectsUsesAllDimensions() {
+        Box b = box(0.0, 0.0, 0.0, 1.0, 1.0, 1.0);
+        assertTrue(b.intersects(box(0.5, 0.5, 0.5, 2.0, 2.0, 2.0)));
+        assertFalse(b.intersects(box(0.5, 0.5, 1.5, 2.0, 2.0, 2.0)));
+        // a 2D rectangle is unbounded in z
+        assertTrue(b.intersects(rectangle(0.5, 0.5, 2.0, 2.0)));
+        assertTrue(rectangle(0.5, 0.5, 2.0, 2.0).intersects(b));
+    }
+
+    @Test
+    public void testDistance() {
+        Box b = box(0.0, 0.0, 0.0, 1.0, 1.0, 1.0);
+        assertEquals(0, b.distance(point(0.5, 0.5, 0.5)), PRECISION);
+        assertEquals(Math.sqrt(3), b.distance(point(2.0, 2.0, 2.0)), PRECISION);
+        assertEquals(2, b.distance(point(0.5, 0.5, 3.0)), PRECISION);
+    }
+
+    @Test
+    public void testAddAndIntersectionArea() {
+        Box a = box(0.0, 0.0, 0.0, 2.0, 2.0, 2.0);
+        Box b = box(1.0, 1.0, 1.0, 3.0, 4.0, 5.0);
+        assertEquals(box(0.0, 0.0, 0.0, 3.0, 4.0, 5.0), a.add(b));
+        assertEquals(1, a.intersectionArea(b), PRECISION);
+        assertEquals(0, a.intersectionArea(box(0.0, 0.0, 3.0, 1.0, 1.0, 4.0)), PRECISION);
+    }
+
+    @Test
+    public void testFloatBoxAddDoubleBoxIsDoublePrecision() {
+        Box a = box(0f, 0f, 0f, 1f, 1f, 1f);
+        assertFalse(a.isDoublePrecision());
+        assertTrue(a.add(box(0.0, 0.0, 0.0, 2.0, 2.0, 2.0)).isDoublePrecision());
+    }
+
+    @Test
+    public void testEqualsAndHashCode() {
+        assertEquals(point(1.0, 2.0, 3.0), box(1.0, 2.0, 3.0, 1.0, 2.0, 3.0));
+        assertEquals(point(1.0, 2.0, 3.0).hashCode(), box(1.0, 2.0, 3.0, 1.0, 2.0, 3.0).hashCode());
+        assertFalse(point(1.0, 2.0, 3.0).equals(point(1.0, 2.0, 4.0)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMinGreaterThanMax() {
+        box(new double[] { 0, 0, 1 }, new double[] { 1, 1, 0 });
+    }
+
+}
@@ -0,0 +1,283 @@
+package com.github.davidmoten.rtree2.geometry;
+
+import static com.github.davidmoten.rtree2.geometry.Geometries.circle;
+import static com.github.davidmoten.rtree2.geometry.Geometries.line;
+import static com.github.davidmoten.rtree2.geometry.Geometries.point;
+import static com.github.davidmoten.rtree2.geometry.Geometries.polygon;
+import static com.github.davidmoten.rtree2.geometry.Geometries.rectangle;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Area;
+import java.awt.geom.Path2D;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public final class PolygonTest {
+
+    private static final double PRECISION = 0.00001;
+
+    private static final Polygon TRIANGLE = polygon(0, 0, 10, 0, 0, 10);
+
+    @Test
+    public void testContainsPoint() {
+        assertTrue(TRIANGLE.contains(1, 1));
+        assertFalse(TRIANGLE.contains(6, 6));
+        assertFalse(TRIANGLE.contains(-1, 1));
+        assertTrue(TRIANGLE.intersects(point(2, 3)));
+    }
+
+    @Test
+    public void testContainsAndIntersectsRectangle() {
+        assertTrue(TRIANGLE.contains(rectangle(1, 1, 2, 2)));
+        assertFalse(TRIANGLE.contains(rectangle(4, 4, 6, 6)));
+        assertTrue(TRIANGLE.intersects(rectangle(4, 4, 6, 6)));
+        assertFalse(TRIANGLE.intersects(rectangle(6, 6, 7, 7)));
+        // polygon wholly inside the rectangle
+        assertTrue(TRIANGLE.intersects(rectangle(-1, -1, 11, 11)));
+    }
+
+    @Test
+    public void testIntersectsLineAndCircle() {
+        assertTrue(TRIANGLE.intersects(line(-1, 5, 20, 5)));
+        assertFalse(TRIANGLE.intersects(line(6, 6, 20, 20)));
+        assertTrue(TRIANGLE.intersects(circle(6, 6, 2)));
+        assertFalse(TRIANGLE.intersects(circle(6, 6, 1)));
+    }
+
+    @Test
+    public void testDistance() {
+        assertEquals(0, TRIANGLE.distance(rectangle(1, 1, 2, 2)), PRECISION);
+        assertEquals(Math.sqrt(50), TRIANGLE.distance(rectangle(10, 10, 11, 11)), PRECISION);
+    }
+
+    @Test
+    public void testDistanceMatchesScanOfAllEdges() {
+        Random r = new Random(321);
+        List<double[]> rings = Arrays.asList(star(50, 50, 40, 15, 300, r),
+                star(50, 50, 8, 4, 20, r));
+        Polygon p = Geometries.multiPolygon(rings);
+        for (int i = 0; i < 2000; i++) {
+            double x = r.nextDouble() * 300 - 100;
+            double y = r.nextDouble() * 300 - 100;
+            Rectangle rect = rectangle(x, y, x + r.nextDouble() * 5, y + r.nextDouble() * 5);
+            double expected = Double.MAX_VALUE;
+            if (p.intersects(rect)) {
+                expected = 0;
+            } else {
+                for (double[] ring : rings) {
+                    int n = ring.length / 2;
+                    for (int j = 0; j < n; j++) {
+                        int k = (j + 1) % n;
+                        expected = Math.min(expected, line(ring[2 * j], ring[2 * j + 1],
+                                ring[2 * k], ring[2 * k + 1]).distance(rect));
+                    }
+                }
+            }
+            assertEquals(expected, p.distance(rect), PRECISION);
+        }
+    }
+
+    @Test
+    public void testHoleAndSeparatePart() {
+        Polygon p = Geometries.multiPolygon(Arrays.asList( //
+                new double[] { 0, 0, 10, 0, 10, 10, 0, 10 }, //
+                new double[] { 4, 4, 6, 4, 6, 6, 4, 6 }, //
+                new double[] { 20, 20, 30, 20, 30, 30 }));
+        assertEquals(3, p.rings());
+        assertTrue(p.contains(1, 1));
+        assertFalse(p.contains(5, 5));
+        assertTrue(p.contains(29, 21));
+        assertFalse(p.contains(15, 15));
+        assertFalse(p.contains(rectangle(3, 3, 7, 7)));
+        assertTrue(p.intersects(rectangle(3, 3, 7, 7)));
+        assertFalse(p.intersects(rectangle(4.5, 4.5, 5.5, 5.5)));
+        assertEquals(rectangle(0.0, 0.0, 30.0, 30.0), p.mbr());
+    }
+
+    @Test
+    public void testContainsMatchesPath2DForManyVertices() {
+        Random r = new Random(123);
+        List<double[]> rings = Arrays.asList(star(50, 50, 40, 15, 300, r),
+                star(50, 50, 8, 4, 20, r));
+        Polygon p = Geometries.multiPolygon(rings);
+        Path2D path = new Path2D.Double(Path2D.WIND_EVEN_ODD);
+        for (double[] ring : rings) {
+            path.moveTo(ring[0], ring[1]);
+            for (int i = 1; i < ring.length / 2; i++) {
+                path.lineTo(ring[2 * i], ring[2 * i + 1]);
+            }
+            path.closePath();
+        }
+        for (int i = 0; i < 10000; i++) {
+            double x = r.nextDouble() * 100;
+            double y = r.nextDouble() * 100;
+            assertEquals(path.contains(x, y), p.contains(x, y));
+            double w = r.nextDouble() * 5;
+            double h = r.nextDouble() * 5;
+            assertEquals(path.intersects(x, y, w, h), p.intersects(rectangle(x, y, x + w, y + h)));
+        }
+    }
+
+    @Test
+    public void testContainsMatchesPath2DWithLongEdges() {
+        Random r = new Random(456);
+        // many short edges plus a sawtooth of long nearly vertical edges spanning
+        // the whole height
+        double[] saw = new double[4 * 100 + 4];
+        for (int i = 0; i < 100; i++) {
+            saw[4 * i] = i;
+            saw[4 * i + 1] = 0;
+            saw[4 * i + 2] = i + 0.5;
+            saw[4 * i + 3] = 100;
+        }
+        saw[400] = 100;
+        saw[401] = 0;
+        saw[402] = 100;
+        saw[403] = -10;
+        List<double[]> rings = Arrays.asList(star(50, 50, 40, 15, 300, r), saw);
+        Polygon p = Geometries.multiPolygon(rings);
+        Path2D path = new Path2D.Double(Path2D.WIND_EVEN_ODD);
+        for (double[] ring : rings) {
+            path.moveTo(ring[0], ring[1]);
+            for (int i = 1; i < ring.length / 2; i++) {
+                path.lineTo(ring[2 * i], ring[2 * i + 1]);
+            }
+            path.closePath();
+        }
+        for (int i = 0; i < 10000; i++) {
+            double x = r.nextDouble() * 100;
+            double y = r.nextDouble() * 100;
+            assertEquals(path.contains(x, y), p.contains(x, y));
+            double w = r.nextDouble() * 0.2;
+            double h = r.nextDouble() * 5;
+            assertEquals(path.intersects(x, y, w, h), p.intersects(rectangle(x, y, x + w, y + h)));
+        }
+    }
+
+    @Test
+    public void testIntersectsPolygon() {
+        // crossing edges
+        assertTrue(TRIANGLE.intersects(polygon(4, 4, 10, 4, 10, 10)));
+        // one inside the other without crossing edges
+        assertTrue(TRIANGLE.intersects(polygon(1, 1, 2, 1, 1, 2)));
+        assertTrue(polygon(1, 1, 2, 1, 1, 2).intersects(TRIANGLE));
+        // disjoint but with intersecting mbrs
+        assertFalse(TRIANGLE.intersects(polygon(6, 6, 10, 6, 10, 10)));
+        // inside a hole
+        Polygon holed = Geometries.multiPolygon(Arrays.asList( //
+                new double[] { 0, 0, 10, 0, 10, 10, 0, 10 }, //
+                new double[] { 2, 2, 8, 2, 8, 8, 2, 8 }));
+        assertFalse(holed.intersects(polygon(4, 4, 6, 4, 5, 6)));
+        assertFalse(polygon(4, 4, 6, 4, 5, 6).intersects(holed));
+    }
+
+    @Test
+    public void testIntersectsPolygonMatchesArea() {
+        Random r = new Random(789);
+        double[] starRing = star(50, 50, 40, 15, 300, r);
+        Polygon p = polygon(starRing);
+        Area area = new Area(path(Arrays.asList(starRing)));
+        for (int i = 0; i < 2000; i++) {
+            double x = r.nextDouble() * 100;
+            double y = r.nextDouble() * 100;
+            double[] ring = new double[] { x, y, x + r.nextDouble() * 10, y + r.nextDouble() * 3,
+                    x + r.nextDouble() * 3, y + r.nextDouble() * 10 };
+            Area a = new Area(path(Arrays.asList(ring)));
+            a.intersect(area);
+            assertEquals(!a.isEmpty(), p.intersects(polygon(ring)));
+            assertEquals(!a.isEmpty(), polygon(ring).intersects(p));
+        }
+    }
+
+    @Test
+    public void testDistanceToLineAndPolygonMatchesScanOfAllEdgePairs() {
+        Random r = new Random(654);
+        double[] starRing = star(50, 50, 40, 15, 300, r);
+        Polygon p = polygon(starRing);
+        Area area = new Area(path(Arrays.asList(starRing)));
+        for (int i = 0; i < 1000; i++) {
+            double x = r.nextDouble() * 200 - 50;
+            double y = r.nextDouble() * 200 - 50;
+            double[] ring = new double[] { x, y, x + r.nextDouble() * 10, y + r.nextDouble() * 3,
+                    x + r.nextDouble() * 3, y + r.nextDouble() * 10 };
+            Area a = new Area(path(Arrays.asList(ring)));
+            a.intersect(area);
+            double expected = a.isEmpty() ? minSegmentDistance(starRing, ring) : 0;
+            assertEquals(expected, p.distance(polygon(ring)), PRECISION);
+            assertEquals(expected, polygon(ring).distance(p), PRECISION);
+            Line line = line(ring[0], ring[1], ring[2], ring[3]);
+            double expectedLine = p.intersects(line) ? 0
+                    : minSegmentDistance(starRing, new double[] { ring[0], ring[1], ring[2],
+                            ring[3] });
+            assertEquals(expectedLine, p.distance(line), PRECISION);
+        }
+    }
+
+    // minimum distance between the edges of ring a and the edges of ring b (a
+    // two-vertex ring is a single segment)
+    private static double minSegmentDistance(double[] a, double[] b) {
+        double d = Double.MAX_VALUE;
+        int n = a.length / 2;
+        int m = b.length / 2;
+        for (int i = 0; i < n; i++) {
+            int i2 = (i + 1) % n;
+            for (int j = 0; j < (m == 2 ? 1 : m); j++) {
+                int j2 = (j + 1) % m;
+                java.awt.geom.Line2D.Double s = new java.awt.geom.Line2D.Double(a[2 * i],
+                        a[2 * i + 1], a[2 * i2], a[2 * i2 + 1]);
+                java.awt.geom.Line2D.Double t = new java.awt.geom.Line2D.Double(b[2 * j],
+                        b[2 * j + 1], b[2 * j2], b[2 * j2 + 1]);
+                if (s.intersectsLine(t)) {
+                    return 0;
+                }
+                d = Math.min(d, Math.min(Math.min(s.ptSegDist(t.getP1()), s.ptSegDist(t.getP2())),
+                        Math.min(t.ptSegDist(s.getP1()), t.ptSegDist(s.getP2()))));
+            }
+        }
+        return d;
+    }
+
+    private static Path2D path(List<double[]> rings) {
+        Path2D path = new Path2D.Double(Path2D.WIND_EVEN_ODD);
+        for (double[] ring : rings) {
+            path.moveTo(ring[0], ring[1]);
+            for (int i = 1; i < ring.length / 2; i++) {
+                path.lineTo(ring[2 * i], ring[2 * i + 1]);
+            }
+            path.closePath();
+        }
+        return path;
+    }
+
+    @Test
+    public void testRingIsCopied() {
+        double[] xy = { 0, 0, 1, 0, 0, 1 };
+        Polygon p = polygon(xy);
+        xy[0] = 100;
+        assertEquals(0, p.ring(0)[0], PRECISION);
+        assertEquals(p, polygon(0, 0, 1, 0, 0, 1));
+        assertEquals(p.hashCode(), polygon(0, 0, 1, 0, 0, 1).hashCode());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooFewVertices() {
+        polygon(0, 0, 1, 1);
+    }
+
+    private static double[] star(double cx, double cy, double r1, double r2, int n, Random random) {
+        double[] xy = new double[4 * n];
+        for (int i = 0; i < 2 * n; i++) {
+            double a = Math.PI * i / n;
+            double radius = (i % 2 == 0 ? r1 : r2) * (0.8 + 0.4 * random.nextDouble());
+            xy[2 * i] = cx + radius * Math.cos(a);
+            xy[2 * i + 1] = cy + radius * Math.sin(a);
+        }
+        return xy;
+    }
+
+}
@@ -1,5 +1,11 @@
 package com.github.davidmoten.rtree2.geometry.internal;
 
+import static com.github.davidmoten.rtree2.geometry.Geometries.circle;
+import static com.github.davidmoten.rtree2.geometry.Geometries.rectangle;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
 import org.junit.Test;
 
 import com.github.davidmoten.junit.Asserts;
@@ -11,4 +17,21 @@ public class GeometryUtilTest {
         Asserts.assertIsUtilityClass(GeometryUtil.class);
     }
 
+    @Test
+    public void testRectangleContainsRectangle() {
+        assertTrue(GeometryUtil.contains(rectangle(0, 0, 10, 10), rectangle(1, 1, 10, 2)));
+        assertFalse(GeometryUtil.contains(rectangle(0, 0, 10, 10), rectangle(1, 1, 11, 2)));
+    }
+
+    @Test
+    public void testCircleContainsRectangle() {
+        assertTrue(GeometryUtil.contains(circle(0, 0, 5), rectangle(-3, -4, 3, 4)));
+        assertFalse(GeometryUtil.contains(circle(0, 0, 5), rectangle(-3, -4, 3.1, 4)));
+    }
+
+    @Test
+    public void testMaxDistance() {
+        assertEquals(5, GeometryUtil.maxDistance(rectangle(0, 0, 1, 1), rectangle(3, 4, 3, 4)), 0.000001);
+    }
+
 }